@@ -0,0 +1,62 @@
+package project.controllers;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Loads the content of the Java blobs on demand and keeps only the most recently used ones.
+ * The ClassFiles of all the releases hold just the blob id and read their source through this
+ * cache, so the sources of the whole history are never on the heap at the same time.
+ * The repository is asked to the supplier at every load, because it can be reopened after a restore.
+ */
+public class BlobContentCache implements Function<ObjectId, String> {
+    private final Supplier<? extends Repository> repository;
+    private final Map<ObjectId, String> contents;
+
+    public BlobContentCache(Supplier<? extends Repository> repository, int maxEntries) {
+        this.repository = repository;
+        this.contents = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ObjectId, String> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @return the content of the blob, read from the object database if it is not cached
+     */
+    @Override
+    public String apply(ObjectId blobId) {
+        synchronized (contents) {
+            String content = contents.get(blobId);
+            if (content != null) {
+                return content;
+            }
+        }
+        // la lettura avviene fuori dal lock: due thread possono leggere lo stesso blob, con lo stesso risultato
+        String content = load(blobId);
+        synchronized (contents) {
+            contents.put(blobId.copy(), content);
+        }
+        return content;
+    }
+
+    private String load(ObjectId blobId) {
+        try (ObjectReader reader = repository.get().newObjectReader()) {
+            return new String(reader.open(blobId, Constants.OBJ_BLOB).getBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Impossibile leggere il blob " + blobId.name(), e);
+        }
+    }
+}
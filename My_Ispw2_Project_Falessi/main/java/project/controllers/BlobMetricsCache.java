@@ -0,0 +1,316 @@
+package project.controllers;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import project.models.MethodMetrics;
+import project.utils.ConstantSize;
+import project.utils.ConstantsWindowsFormat;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Second level of cache, keyed by the Git blob id of a Java file instead of the commit hash.
+ * A blob always has the same content, so its CK and smell metrics are computed once and then
+ * reused by every commit (of every release) that contains the same version of the file.
+ * The file is an append-only log: a header with the CK version and the ruleset, then one record
+ * per blob (raw blob id, payload length, methods). A save appends only the blobs added since the
+ * previous one; changing CK or the ruleset invalidates the file, and a torn or unreadable record
+ * is truncated when the cache is loaded.
+ * Only the position of every record is kept on the heap: the metrics are read back from the log
+ * and the most recently used ones are kept in a bounded cache, so the heap does not grow with the
+ * history. The blobs not saved yet stay in memory until the next save.
+ */
+public class BlobMetricsCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BlobMetricsCache.class);
+    private static final String CK_VERSION = "ck-0.7.0";
+    private static final int HEADER_SIZE = Constants.OBJECT_ID_LENGTH + Integer.BYTES;
+
+    private final Path cacheFilePath;
+    private final String version;
+    // blob id -> {offset, length} del payload del suo record nel file
+    private final Map<ObjectId, long[]> index = new ConcurrentHashMap<>();
+    // blob aggiunti dopo l'ultimo salvataggio
+    private final Map<ObjectId, List<MethodMetrics>> pending = new ConcurrentHashMap<>();
+    // metriche lette dal file più di recente
+    private final Map<ObjectId, List<MethodMetrics>> recent;
+
+    public BlobMetricsCache(String projectName) {
+        this(ConstantsWindowsFormat.CACHE_PATH.resolve(projectName.toLowerCase() + "_blob_cache.bin"),
+                ConstantSize.BLOB_METRICS_CACHE_SIZE);
+    }
+
+    BlobMetricsCache(Path cacheFilePath, int maxRecent) {
+        this.cacheFilePath = cacheFilePath;
+        this.version = CK_VERSION + "#" + rulesetFingerprint();
+        this.recent = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ObjectId, List<MethodMetrics>> eldest) {
+                return size() > maxRecent;
+            }
+        };
+        load();
+    }
+
+    /**
+     * @return the metrics of the blob, read from the file if they are not in memory, or null if it was never analyzed
+     */
+    public List<MethodMetrics> get(ObjectId blobId) {
+        List<MethodMetrics> metrics = pending.get(blobId);
+        if (metrics != null) {
+            return metrics;
+        }
+        synchronized (recent) {
+            metrics = recent.get(blobId);
+            if (metrics != null) {
+                return metrics;
+            }
+        }
+        long[] entry = index.get(blobId);
+        if (entry == null) {
+            // salvato tra la lettura di pending e quella dell'indice
+            return pending.get(blobId);
+        }
+        // la lettura avviene fuori dal lock: due thread possono leggere lo stesso record, con lo stesso risultato
+        metrics = read(entry);
+        synchronized (recent) {
+            recent.put(blobId.copy(), metrics);
+        }
+        return metrics;
+    }
+
+    public void put(ObjectId blobId, List<MethodMetrics> metrics) {
+        // metriche uguali per lo stesso blob: basta registrarlo una volta
+        if (!index.containsKey(blobId)) {
+            pending.putIfAbsent(blobId.copy(), Collections.unmodifiableList(new ArrayList<>(metrics)));
+        }
+    }
+
+    /**
+     * @return the entries of blobs whose metrics have never been computed, in the same order
+     */
+    public Map<String, ObjectId> missing(Map<String, ObjectId> blobsByPath) {
+        Map<String, ObjectId> missing = new LinkedHashMap<>();
+        for (Map.Entry<String, ObjectId> entry : blobsByPath.entrySet()) {
+            if (!index.containsKey(entry.getValue()) && !pending.containsKey(entry.getValue())) {
+                missing.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return missing;
+    }
+
+    public int size() {
+        return index.size() + pending.size();
+    }
+
+    /**
+     * Appends to the file the blobs added since the last save
+     */
+    public synchronized void save() {
+        List<ObjectId> added = new ArrayList<>(pending.keySet());
+        if (added.isEmpty()) {
+            return;
+        }
+
+        try {
+            Files.createDirectories(cacheFilePath.getParent());
+            try (FileChannel channel = FileChannel.open(cacheFilePath, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                long offset = channel.size();
+                ByteArrayOutputStream records = new ByteArrayOutputStream();
+                if (offset == 0) {
+                    byte[] header = version.getBytes(StandardCharsets.UTF_8);
+                    records.write(ByteBuffer.allocate(Integer.BYTES).putInt(header.length).array());
+                    records.write(header);
+                }
+                Map<ObjectId, long[]> newEntries = new LinkedHashMap<>();
+                byte[] rawId = new byte[Constants.OBJECT_ID_LENGTH];
+                for (ObjectId blobId : added) {
+                    byte[] payload = encode(pending.get(blobId));
+                    blobId.copyRawTo(rawId, 0);
+                    records.write(rawId);
+                    records.write(ByteBuffer.allocate(Integer.BYTES).putInt(payload.length).array());
+                    newEntries.put(blobId, new long[]{offset + records.size(), payload.length});
+                    records.write(payload);
+                }
+
+                channel.position(offset);
+                ByteBuffer buffer = ByteBuffer.wrap(records.toByteArray());
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+                // prima l'indice, poi la rimozione da pending: get trova sempre il blob in uno dei due
+                index.putAll(newEntries);
+            }
+            pending.keySet().removeAll(added);
+            LOGGER.info("Blob cache {}: salvati {} nuovi blob, {} in totale", cacheFilePath, added.size(), index.size());
+        } catch (IOException e) {
+            // i blob restano in pending e saranno salvati al prossimo tentativo
+            LOGGER.error("Errore durante il salvataggio della blob cache {}", cacheFilePath, e);
+        }
+    }
+
+    private List<MethodMetrics> read(long[] entry) {
+        ByteBuffer payload = ByteBuffer.allocate((int) entry[1]);
+        try (FileChannel channel = FileChannel.open(cacheFilePath, StandardOpenOption.READ)) {
+            long position = entry[0];
+            while (payload.hasRemaining()) {
+                int read = channel.read(payload, position);
+                if (read < 0) {
+                    throw new EOFException("Record della blob cache troncato in " + entry[0]);
+                }
+                position += read;
+            }
+            return decode(payload.array());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Impossibile leggere la blob cache " + cacheFilePath, e);
+        }
+    }
+
+    // il file è letto in streaming: ogni record è decodificato solo per verificarlo, in memoria resta la sua posizione
+    private void load() {
+        if (!Files.exists(cacheFilePath)) {
+            return;
+        }
+        try {
+            long fileSize = Files.size(cacheFilePath);
+            long validSize;
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFilePath)))) {
+                long headerSize = readVersion(in, fileSize);
+                if (headerSize < 0) {
+                    LOGGER.info("Blob cache {} creata con CK o ruleset diversi, viene ignorata", cacheFilePath);
+                    truncate(0);
+                    return;
+                }
+                validSize = readRecords(in, headerSize, fileSize);
+            }
+            if (validSize < fileSize) {
+                LOGGER.warn("Blob cache {} troncata a {} byte", cacheFilePath, validSize);
+                truncate(validSize);
+            }
+            LOGGER.info("Blob cache caricata da {} con {} blob", cacheFilePath, index.size());
+        } catch (IOException e) {
+            LOGGER.error("Errore durante il caricamento della blob cache {}", cacheFilePath, e);
+            index.clear();
+        }
+    }
+
+    // legge i record a partire da position, restituisce la dimensione della parte valida del file
+    private long readRecords(DataInputStream in, long position, long fileSize) throws IOException {
+        byte[] rawId = new byte[Constants.OBJECT_ID_LENGTH];
+        long validSize = position;
+        while (fileSize - validSize >= HEADER_SIZE) {
+            in.readFully(rawId);
+            int length = in.readInt();
+            long payloadOffset = validSize + HEADER_SIZE;
+            if (length < 0 || fileSize - payloadOffset < length) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            try {
+                decode(payload);
+            } catch (IOException e) {
+                LOGGER.warn("Record non leggibile nella blob cache {} alla posizione {}", cacheFilePath, validSize, e);
+                break;
+            }
+            index.put(ObjectId.fromRaw(rawId), new long[]{payloadOffset, length});
+            validSize = payloadOffset + length;
+        }
+        return validSize;
+    }
+
+    // dimensione dell'intestazione, -1 se manca o appartiene a un'altra versione di CK o del ruleset
+    private long readVersion(DataInputStream in, long fileSize) throws IOException {
+        if (fileSize < Integer.BYTES) {
+            return -1;
+        }
+        int length = in.readInt();
+        if (length < 0 || fileSize - Integer.BYTES < length) {
+            return -1;
+        }
+        byte[] header = new byte[length];
+        in.readFully(header);
+        return version.equals(new String(header, StandardCharsets.UTF_8)) ? Integer.BYTES + (long) length : -1;
+    }
+
+    private void truncate(long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(cacheFilePath, StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        }
+    }
+
+    private static byte[] encode(List<MethodMetrics> metrics) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(metrics.size());
+            for (MethodMetrics method : metrics) {
+                out.writeUTF(method.getCkClassName());
+                out.writeUTF(method.getQualifiedMethodName());
+                out.writeUTF(method.getMethodName());
+                int[] values = method.values();
+                out.writeInt(values.length);
+                for (int value : values) {
+                    out.writeInt(value);
+                }
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static List<MethodMetrics> decode(byte[] payload) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            int size = in.readInt();
+            if (size < 0) {
+                throw new IOException("Numero di metodi non valido: " + size);
+            }
+            List<MethodMetrics> metrics = new ArrayList<>(Math.min(size, payload.length));
+            for (int i = 0; i < size; i++) {
+                String ckClassName = in.readUTF();
+                String qualifiedMethodName = in.readUTF();
+                String methodName = in.readUTF();
+                int count = in.readInt();
+                // MethodMetrics legge esattamente VALUE_COUNT valori
+                if (count != MethodMetrics.VALUE_COUNT) {
+                    throw new IOException("Numero di metriche non valido: " + count);
+                }
+                int[] values = new int[count];
+                for (int j = 0; j < values.length; j++) {
+                    values[j] = in.readInt();
+                }
+                metrics.add(new MethodMetrics(ckClassName, qualifiedMethodName, methodName, values));
+            }
+            return Collections.unmodifiableList(metrics);
+        }
+    }
+
+    // the smells depend on the rules: a different custom_rules.xml gives a different tag
+    private static String rulesetFingerprint() {
+        try {
+            return Integer.toHexString(Arrays.hashCode(Files.readAllBytes(ConstantsWindowsFormat.RULES_SET_PATH)));
+        } catch (IOException e) {
+            return "default";
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package project.controllers;
+
+import com.github.mauricioaniche.ck.CKNotifier;
+import com.github.mauricioaniche.ck.MetricsExecutor;
+import com.github.mauricioaniche.ck.util.MetricsFinder;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+
+/**
+ * Runs the CK metrics on sources held in memory instead of a directory on disk.
+ * It feeds CK's own MetricsExecutor with compilation units parsed from the source text, with the
+ * compliance and binding options of CK. Unlike the directory run, which parses all the files in one
+ * batch with the directories as sourcepath, JDT can only parse an in-memory source on its own: the
+ * types declared in the other files do not resolve, so fanin and fanout can differ from the directory
+ * run. The metrics that do not depend on bindings (loc, wmc, assignments, returns...) are the same.
+ */
+public class CKInMemoryRunner {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CKInMemoryRunner.class);
+    // CK 0.7.0 parses with Java 11 compliance; the AST level is the latest one, the compliance limits the language
+    private static final String JAVA_COMPLIANCE = "11";
+
+    // the finder scans the classpath for the metric classes: do it once per JVM
+    private static final MetricsFinder METRICS_FINDER = new MetricsFinder();
+
+    private CKInMemoryRunner() {
+    }
+
+    /**
+     * Calculates the CK metrics of every source and notifies the results class by class.
+     *
+     * @param sources map from the repository-relative path of a file to its content
+     * @param notifier callback receiving the result of each class
+     */
+    public static void calculate(Map<String, String> sources, CKNotifier notifier) {
+        MetricsExecutor executor = new MetricsExecutor(
+                METRICS_FINDER::allClassLevelMetrics,
+                () -> METRICS_FINDER.allMethodLevelMetrics(true),
+                notifier);
+
+        Map<String, String> options = JavaCore.getOptions();
+        JavaCore.setComplianceOptions(JAVA_COMPLIANCE, options);
+
+        for (Map.Entry<String, String> source : sources.entrySet()) {
+            try {
+                ASTParser parser = ASTParser.newParser(AST.JLS_Latest);
+                parser.setKind(ASTParser.K_COMPILATION_UNIT);
+                parser.setResolveBindings(true);
+                parser.setBindingsRecovery(true);
+                parser.setCompilerOptions(options);
+                parser.setEnvironment(null, null, null, true);
+                parser.setUnitName(source.getKey());
+                parser.setSource(source.getValue().toCharArray());
+
+                CompilationUnit compilationUnit = (CompilationUnit) parser.createAST(null);
+                executor.acceptAST(source.getKey(), compilationUnit);
+            } catch (Exception e) {
+                LOGGER.error("Errore durante l'analisi CK in memoria del file: {}", source.getKey(), e);
+            }
+        }
+    }
+}
@@ -2,25 +2,31 @@ package project.controllers;
 
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONTokener;
 import project.models.MethodInstance;
 import project.utils.ConstantsWindowsFormat;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.HashSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
 
 public class Caching {
     /**
      * Saves the commit cache to disk
      */
     private static final Path cacheDirPath = ConstantsWindowsFormat.CACHE_PATH;
+    private static final Map<String, CommitCacheStore> STORES = new ConcurrentHashMap<>();
+    private static final int MIGRATION_BATCH_SIZE = 500;
 
     /**
-     * Gets the cache file path for a specific project
+     * Gets the path of the legacy JSON cache file for a specific project
      *
      * @param projectName The name of the project
      * @return The path to the cache file for the project
@@ -30,7 +36,8 @@ public class Caching {
     }
 
     /**
-     * Saves the commit cache to disk with optimized performance
+     * Saves the commit cache to disk. Only the commits not yet stored are appended,
+     * so the cost of a save does not grow with the size of the cache.
      *
      * @param resultCommitsMethods Map of commit hashes to method instances
      * @param projectName The name of the project
@@ -39,122 +46,123 @@ public class Caching {
         long startTime = System.currentTimeMillis();
 
         try {
-            // Create a JSON object to hold the cache
-            JSONObject cacheJson = new JSONObject();
-            int totalMethods = 0;
+            CommitCacheStore store = getStore(projectName);
+            int written = store.append(resultCommitsMethods);
 
-            // Load existing cache if it exists
-            Path cacheFilePath = getCacheFilePath(projectName);
-            if (Files.exists(cacheFilePath)) {
-                try (java.io.BufferedInputStream bis = new java.io.BufferedInputStream(
-                        Files.newInputStream(cacheFilePath), 8192)) {
-
-                    org.json.JSONTokener tokener = new org.json.JSONTokener(bis);
-
-                    // Check if it's a JSON object
-                    if (tokener.nextClean() != '{') {
-                        throw new JSONException("Expected a JSON object");
-                    }
-
-                    // Reset the tokener
-                    tokener.back();
-
-                    // Parse the JSON object
-                    cacheJson = new JSONObject(tokener);
-                    System.out.println("Loaded existing cache for project " + projectName + " with " + cacheJson.length() + " commits");
-                }
-            }
-
-            // For each commit in the cache
-            int commitCount = 0;
-            for (Map.Entry<String, Map<String, MethodInstance>> commitEntry : resultCommitsMethods.entrySet()) {
-                String commitHash = commitEntry.getKey();
-                Map<String, MethodInstance> methodMap = commitEntry.getValue();
-
-                // Create or get the JSON object for this commit
-                JSONObject commitJson;
-                if (cacheJson.has(commitHash)) {
-                    commitJson = cacheJson.getJSONObject(commitHash);
-                } else {
-                    commitJson = new JSONObject();
-                }
-
-                // For each method in the commit
-                int methodsAdded = 0;
-                for (Map.Entry<String, MethodInstance> methodEntry : methodMap.entrySet()) {
-                    String methodKey = methodEntry.getKey();
-                    MethodInstance method = methodEntry.getValue();
-
-                    // Skip if this method is already in the cache for this commit
-                    if (commitJson.has(methodKey)) {
-                        continue;
-                    }
-
-                    // Create a JSON object for this method
-                    JSONObject methodJson = new JSONObject();
-                    methodJson.put("filePath", method.getFilePath());
-                    methodJson.put("methodName", method.getMethodName());
-                    methodJson.put("className", method.getClassName());
-                    methodJson.put("loc", method.getLoc());
-                    methodJson.put("wmc", method.getWmc());
-                    methodJson.put("qtyAssigment", method.getQtyAssigment());
-                    methodJson.put("qtyMathOperations", method.getQtyMathOperations());
-                    methodJson.put("qtyTryCatch", method.getQtyTryCatch());
-                    methodJson.put("qtyReturn", method.getQtyReturn());
-                    methodJson.put("fanin", method.getFanin());
-                    methodJson.put("fanout", method.getFanout());
-                    methodJson.put("age", method.getAge());
-                    methodJson.put("nAuth", method.getnAuth());
-                    methodJson.put("nr", method.getNr());
-                    methodJson.put("nSmells", method.getnSmells());
-                    methodJson.put("buggy", method.isBuggy());
-
-                    // Add the method to the commit JSON
-                    commitJson.put(methodKey, methodJson);
-                    methodsAdded++;
-                    totalMethods++;
-                }
-
-                // Add the commit to the cache JSON
-                cacheJson.put(commitHash, commitJson);
-                commitCount++;
-
-                // Log progress periodically
-                if (commitCount % 100 == 0) {
-                    System.out.println("Processed " + commitCount + " commits for saving...");
-                }
-            }
+            long endTime = System.currentTimeMillis();
+            System.out.println("Commit cache for project " + projectName + " saved to " + store.getIndexPath() +
+                    " appending " + written + " commits in " + (endTime - startTime) + "ms");
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error saving commit cache for project " + projectName + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
 
-            // Write the cache to disk using a BufferedWriter for better performance
-            try (java.io.BufferedWriter writer = Files.newBufferedWriter(cacheFilePath)) {
-                // Use a more compact JSON representation to save space
-                writer.write(cacheJson.toString());
+    /**
+     * Loads specific commits from the cache, reading only their records
+     *
+     * @param resultCommitsMethods Map to store the loaded commits
+     * @param commitHashes Set of commit hashes to load, or null to load all commits
+     * @param projectName The name of the project
+     */
+    public static void loadCommitCache(Map<String, Map<String, MethodInstance>> resultCommitsMethods, Set<String> commitHashes, String projectName) {
+        long startTime = System.currentTimeMillis();
+        try {
+            CommitCacheStore store = getStore(projectName);
+            if (!store.exists()) {
+                System.out.println("No commit cache found at " + store.getIndexPath());
+                return;
             }
+            int commitCount = store.load(resultCommitsMethods, commitHashes);
 
             long endTime = System.currentTimeMillis();
-            System.out.println("Commit cache for project " + projectName + " saved to " + cacheFilePath +
-                    " with " + cacheJson.length() + " commits and " +
-                    totalMethods + " methods in " +
-                    (endTime - startTime) + "ms");
-
-        } catch (IOException | JSONException e) {
-            System.err.println("Error saving commit cache for project " + projectName + ": " + e.getMessage());
+            System.out.println("Loaded commit cache for project " + projectName + " from " + store.getIndexPath() +
+                    " with " + commitCount + " commits in " + (endTime - startTime) + "ms");
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error loading commit cache for project " + projectName + ": " + e.getMessage());
             e.printStackTrace();
         }
+    }
 
+    /**
+     * Gets a set of commit hashes available in the cache without loading their data
+     *
+     * @param projectName The name of the project
+     * @return Set of commit hashes available in the cache, or empty set if cache doesn't exist
+     */
+    public static Set<String> getAvailableCommits(String projectName) {
+        try {
+            return getStore(projectName).commits();
+        } catch (IOException e) {
+            System.err.println("Error checking available commits in cache for project " + projectName + ": " + e.getMessage());
+            e.printStackTrace();
+            return new HashSet<>();
+        }
     }
 
+    /**
+     * Loads the methods of a single commit from the cache, or returns null if the commit is not stored.
+     * Used to fetch lazily the commits of the release being processed.
+     *
+     * @param commitHash The hash of the commit
+     * @param projectName The name of the project
+     */
+    public static Map<String, MethodInstance> loadCommit(String commitHash, String projectName) {
+        try {
+            return getStore(projectName).read(commitHash);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error loading commit " + commitHash + " from cache for project " + projectName + ": " + e.getMessage());
+            return null;
+        }
+    }
 
+    private static int appendUnchecked(CommitCacheStore store, Map<String, Map<String, MethodInstance>> commits) {
+        try {
+            return store.append(commits);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
+    /**
+     * One binary store per project; on first access an existing JSON cache is migrated into it
+     */
+    private static CommitCacheStore getStore(String projectName) {
+        return STORES.computeIfAbsent(projectName.toLowerCase(), name -> {
+            CommitCacheStore store = new CommitCacheStore(cacheDirPath, name);
+            if (!store.exists() && Files.exists(getCacheFilePath(name))) {
+                // i commit vengono riversati a blocchi, senza tenere in memoria l'intero file JSON
+                Map<String, Map<String, MethodInstance>> legacyCommits = new HashMap<>();
+                int[] migrated = {0};
+                try {
+                    loadJsonCommitCache(null, name, (commitHash, methods) -> {
+                        legacyCommits.put(commitHash, methods);
+                        if (legacyCommits.size() >= MIGRATION_BATCH_SIZE) {
+                            migrated[0] += appendUnchecked(store, legacyCommits);
+                            legacyCommits.clear();
+                        }
+                    });
+                    migrated[0] += store.append(legacyCommits);
+                    System.out.println("Migrated " + migrated[0] + " commits from " + getCacheFilePath(name) + " to " + store.getIndexPath());
+                } catch (IOException | UncheckedIOException e) {
+                    System.err.println("Error migrating JSON commit cache for project " + name + ": " + e.getMessage());
+                    e.printStackTrace();
+                }
+            }
+            return store;
+        });
+    }
 
     /**
-     * Loads specific commits from the cache
+     * Streams the commits of the legacy JSON cache one at a time: only the selected commits are
+     * materialized, the others are skipped by the tokenizer without building their JSON tree.
      *
-     * @param resultCommitsMethods Map to store the loaded commits
      * @param commitHashes Set of commit hashes to load, or null to load all commits
      * @param projectName The name of the project
+     * @param consumer receives every loaded commit with its methods
      */
-    public static void loadCommitCache(Map<String, Map<String, MethodInstance>> resultCommitsMethods, Set<String> commitHashes, String projectName) {
+    private static void loadJsonCommitCache(Set<String> commitHashes, String projectName,
+                                            BiConsumer<String, Map<String, MethodInstance>> consumer) {
         Path cacheFilePath = getCacheFilePath(projectName);
 
         if (!Files.exists(cacheFilePath)) {
@@ -163,70 +171,38 @@ public class Caching {
         }
 
         long startTime = System.currentTimeMillis();
-        try {
-            // Use a buffered input stream for more efficient reading
-            try (java.io.BufferedInputStream bis = new java.io.BufferedInputStream(
-                    Files.newInputStream(cacheFilePath), 8192)) {
-
-                // Create a JSON parser that doesn't load the entire file into memory
-                org.json.JSONTokener tokener = new org.json.JSONTokener(bis);
-
-                // Check if it's a JSON object
-                if (tokener.nextClean() != '{') {
-                    throw new JSONException("Expected a JSON object");
-                }
-
-                // Reset the tokener
-                tokener.back();
+        try (java.io.BufferedInputStream bis = new java.io.BufferedInputStream(
+                Files.newInputStream(cacheFilePath), 8192)) {
 
-                // Parse the JSON object
-                JSONObject cache = new JSONObject(tokener);
+            JSONTokener tokener = new JSONTokener(bis);
 
-                int commitCount = 0;
-                int methodCount = 0;
-                int skippedCommits = 0;
+            // Check if it's a JSON object
+            if (tokener.nextClean() != '{') {
+                throw new JSONException("Expected a JSON object");
+            }
 
-                // For each commit in the cache
-                for (String commitHash : cache.keySet()) {
-                    // Skip commits not in the requested set (if filtering is enabled)
-                    if (commitHashes != null && !commitHashes.contains(commitHash)) {
-                        skippedCommits++;
-                        continue;
-                    }
+            int commitCount = 0;
+            int methodCount = 0;
+            int skippedCommits = 0;
 
-                    JSONObject commitJson = cache.getJSONObject(commitHash);
-                    Map<String, MethodInstance> methodMap = new HashMap<>();
-
-                    // For each method in the commit
-                    for (String methodKey : commitJson.keySet()) {
-                        JSONObject methodJson = commitJson.getJSONObject(methodKey);
-
-                        // Create a method instance with optimized property setting
-                        MethodInstance method = new MethodInstance();
-                        method.setFilePath(methodJson.optString("filePath", ""));
-                        method.setMethodName(methodJson.optString("methodName", ""));
-                        method.setClassName(methodJson.optString("className", ""));
-                        method.setLoc(methodJson.optInt("loc", 0));
-                        method.setWmc(methodJson.optInt("wmc", 0));
-                        method.setQtyAssigment(methodJson.optInt("qtyAssigment", 0));
-                        method.setQtyMathOperations(methodJson.optInt("qtyMathOperations", 0));
-                        method.setQtyTryCatch(methodJson.optInt("qtyTryCatch", 0));
-                        method.setQtyReturn(methodJson.optInt("qtyReturn", 0));
-                        method.setFanin(methodJson.optInt("fanin", 0));
-                        method.setFanout(methodJson.optInt("fanout", 0));
-                        method.setAge(methodJson.optInt("age", 0));
-                        method.setnAuth(methodJson.optInt("nAuth", 0));
-                        method.setNr(methodJson.optInt("nr", 0));
-                        method.setnSmells(methodJson.optInt("nSmells", 0));
-                        method.setBuggy(methodJson.optBoolean("buggy", false));
-
-                        // Add the method to the map
-                        methodMap.put(methodKey, method);
-                        methodCount++;
-                    }
+            char next = tokener.nextClean();
+            while (next != '}') {
+                if (next != '"') {
+                    throw tokener.syntaxError("Expected a commit hash");
+                }
+                String commitHash = tokener.nextString('"');
+                if (tokener.nextClean() != ':') {
+                    throw tokener.syntaxError("Expected ':' after the commit hash");
+                }
 
-                    // Add the commit to the cache
-                    resultCommitsMethods.put(commitHash, methodMap);
+                // Skip commits not in the requested set (if filtering is enabled)
+                if (commitHashes != null && !commitHashes.contains(commitHash)) {
+                    skipValue(tokener);
+                    skippedCommits++;
+                } else {
+                    Map<String, MethodInstance> methodMap = parseCommitMethods(new JSONObject(tokener));
+                    consumer.accept(commitHash, methodMap);
+                    methodCount += methodMap.size();
                     commitCount++;
 
                     // Log progress periodically to avoid console spam
@@ -235,72 +211,83 @@ public class Caching {
                     }
                 }
 
-                long endTime = System.currentTimeMillis();
-                String filterMsg = commitHashes != null ?
-                        " (filtered " + skippedCommits + " commits)" : "";
-
-                System.out.println("Loaded commit cache for project " + projectName + " from " + cacheFilePath +
-                        " with " + commitCount + " commits" + filterMsg + " and " +
-                        methodCount + " methods in " +
-                        (endTime - startTime) + "ms");
+                next = tokener.nextClean();
+                if (next == ',') {
+                    next = tokener.nextClean();
+                } else if (next != '}') {
+                    throw tokener.syntaxError("Expected ',' or '}'");
+                }
             }
+
+            long endTime = System.currentTimeMillis();
+            String filterMsg = commitHashes != null ?
+                    " (filtered " + skippedCommits + " commits)" : "";
+
+            System.out.println("Loaded commit cache for project " + projectName + " from " + cacheFilePath +
+                    " with " + commitCount + " commits" + filterMsg + " and " +
+                    methodCount + " methods in " +
+                    (endTime - startTime) + "ms");
         } catch (IOException | JSONException e) {
             System.err.println("Error loading commit cache for project " + projectName + ": " + e.getMessage());
             e.printStackTrace();
         }
     }
 
+    private static Map<String, MethodInstance> parseCommitMethods(JSONObject commitJson) {
+        Map<String, MethodInstance> methodMap = new HashMap<>();
+
+        // For each method in the commit
+        for (String methodKey : commitJson.keySet()) {
+            JSONObject methodJson = commitJson.getJSONObject(methodKey);
+
+            // Create a method instance with optimized property setting
+            MethodInstance method = new MethodInstance();
+            method.setFilePath(methodJson.optString("filePath", ""));
+            method.setMethodName(methodJson.optString("methodName", ""));
+            method.setClassName(methodJson.optString("className", ""));
+            method.setLoc(methodJson.optInt("loc", 0));
+            method.setWmc(methodJson.optInt("wmc", 0));
+            method.setQtyAssigment(methodJson.optInt("qtyAssigment", 0));
+            method.setQtyMathOperations(methodJson.optInt("qtyMathOperations", 0));
+            method.setQtyTryCatch(methodJson.optInt("qtyTryCatch", 0));
+            method.setQtyReturn(methodJson.optInt("qtyReturn", 0));
+            method.setFanin(methodJson.optInt("fanin", 0));
+            method.setFanout(methodJson.optInt("fanout", 0));
+            method.setAge(methodJson.optInt("age", 0));
+            method.setnAuth(methodJson.optInt("nAuth", 0));
+            method.setNr(methodJson.optInt("nr", 0));
+            method.setnSmells(methodJson.optInt("nSmells", 0));
+            method.setBuggy(methodJson.optBoolean("buggy", false));
+
+            // Add the method to the map
+            methodMap.put(methodKey, method);
+        }
+        return methodMap;
+    }
 
     /**
-     * Gets a set of commit hashes available in the cache without loading their data
-     *
-     * @param projectName The name of the project
-     * @return Set of commit hashes available in the cache, or empty set if cache doesn't exist
+     * Advances the tokener past the next JSON value without building it
      */
-    public static Set<String> getAvailableCommits(String projectName) {
-        Path cacheFilePath = getCacheFilePath(projectName);
-        Set<String> availableCommits = new HashSet<>();
-
-        if (!Files.exists(cacheFilePath)) {
-            System.out.println("No commit cache found at " + cacheFilePath);
-            return availableCommits;
+    private static void skipValue(JSONTokener tokener) {
+        char c = tokener.nextClean();
+        if (c != '{' && c != '[') {
+            tokener.back();
+            tokener.nextValue();
+            return;
         }
-
-        long startTime = System.currentTimeMillis();
-        try {
-            // Use a buffered input stream for more efficient reading
-            try (java.io.BufferedInputStream bis = new java.io.BufferedInputStream(
-                    Files.newInputStream(cacheFilePath), 8192)) {
-
-                // Create a JSON parser that doesn't load the entire file into memory
-                org.json.JSONTokener tokener = new org.json.JSONTokener(bis);
-
-                // Check if it's a JSON object
-                if (tokener.nextClean() != '{') {
-                    throw new JSONException("Expected a JSON object");
-                }
-
-                // Reset the tokener
-                tokener.back();
-
-                // Parse the JSON object
-                JSONObject cache = new JSONObject(tokener);
-
-                // Add all commit hashes to the set
-                for (String commitHash : cache.keySet()) {
-                    availableCommits.add(commitHash);
-                }
-
-                long endTime = System.currentTimeMillis();
-                System.out.println("Found " + availableCommits.size() + " commits in cache for project " + projectName + " in " +
-                        (endTime - startTime) + "ms");
+        int depth = 1;
+        while (depth > 0) {
+            char n = tokener.next();
+            if (n == 0) {
+                throw tokener.syntaxError("Unterminated JSON value");
+            } else if (n == '"') {
+                tokener.nextString('"');
+            } else if (n == '{' || n == '[') {
+                depth++;
+            } else if (n == '}' || n == ']') {
+                depth--;
             }
-        } catch (IOException | JSONException e) {
-            System.err.println("Error checking available commits in cache for project " + projectName + ": " + e.getMessage());
-            e.printStackTrace();
         }
-
-        return availableCommits;
     }
 
     /**
@@ -0,0 +1,354 @@
+package project.controllers;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import project.models.MethodInstance;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Binary, append-only storage of the commit cache, made of three files:
+ * <ul>
+ *     <li>{@code .strings}: interned string table, every entry is a length followed by its UTF-8 bytes;</li>
+ *     <li>{@code .log}: one record per commit, a method count followed by fixed-width method records
+ *     whose strings are ids in the string table;</li>
+ *     <li>{@code .idx}: fixed-width entries (raw commit id, offset and length of the record in the log).</li>
+ * </ul>
+ * A save appends only the commits not yet in the index, and a load can seek straight to the
+ * commits it needs. The files are written in the order strings, log, index, so an entry of the
+ * index always refers to data already on disk; a torn tail left by a crash is truncated on open.
+ */
+public class CommitCacheStore {
+    // key, filePath, methodName, className as string ids, 12 int metrics, buggy flag
+    private static final int STRING_FIELDS = 4;
+    private static final int INT_FIELDS = 12;
+    private static final int METHOD_RECORD_SIZE = (STRING_FIELDS + INT_FIELDS) * Integer.BYTES + 1;
+    private static final int INDEX_ENTRY_SIZE = Constants.OBJECT_ID_LENGTH + Long.BYTES + Integer.BYTES;
+
+    private final Path stringsPath;
+    private final Path logPath;
+    private final Path indexPath;
+
+    private final List<String> strings = new ArrayList<>();
+    private final Map<String, Integer> stringIds = new HashMap<>();
+    // commit hash -> {offset, length} of its record in the log
+    private final Map<String, long[]> index = new LinkedHashMap<>();
+    private boolean opened;
+
+    public CommitCacheStore(Path cacheDir, String projectName) {
+        String baseName = projectName.toLowerCase() + "_commit_cache";
+        this.stringsPath = cacheDir.resolve(baseName + ".strings");
+        this.logPath = cacheDir.resolve(baseName + ".log");
+        this.indexPath = cacheDir.resolve(baseName + ".idx");
+    }
+
+    /**
+     * @return true if the binary cache has already been created on disk
+     */
+    public boolean exists() {
+        return Files.exists(indexPath);
+    }
+
+    public Path getIndexPath() {
+        return indexPath;
+    }
+
+    public synchronized Set<String> commits() throws IOException {
+        open();
+        return new LinkedHashSet<>(index.keySet());
+    }
+
+    public synchronized boolean contains(String commitHash) throws IOException {
+        open();
+        return index.containsKey(commitHash);
+    }
+
+    /**
+     * Appends the commits that are not stored yet; the ones already in the index are skipped.
+     *
+     * @return the number of commits written
+     */
+    public synchronized int append(Map<String, Map<String, MethodInstance>> commits) throws IOException {
+        open();
+
+        int firstNewString = strings.size();
+        Map<String, ByteBuffer> records = new LinkedHashMap<>();
+        for (String commitHash : new ArrayList<>(commits.keySet())) {
+            // only the new commits are read: with an off-heap map get() materializes the methods
+            if (index.containsKey(commitHash) || records.containsKey(commitHash)) {
+                continue;
+            }
+            Map<String, MethodInstance> methods = commits.get(commitHash);
+            if (methods != null) {
+                records.put(commitHash, encode(methods));
+            }
+        }
+        if (records.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            appendStrings(strings.subList(firstNewString, strings.size()));
+
+            Map<String, long[]> newEntries = new LinkedHashMap<>();
+            try (FileChannel log = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                long offset = log.size();
+                log.position(offset);
+                for (Map.Entry<String, ByteBuffer> record : records.entrySet()) {
+                    ByteBuffer buffer = record.getValue();
+                    int length = buffer.remaining();
+                    writeFully(log, buffer);
+                    newEntries.put(record.getKey(), new long[]{offset, length});
+                    offset += length;
+                }
+                log.force(false);
+            }
+
+            ByteBuffer indexBuffer = ByteBuffer.allocate(newEntries.size() * INDEX_ENTRY_SIZE);
+            byte[] rawId = new byte[Constants.OBJECT_ID_LENGTH];
+            for (Map.Entry<String, long[]> entry : newEntries.entrySet()) {
+                ObjectId.fromString(entry.getKey()).copyRawTo(rawId, 0);
+                indexBuffer.put(rawId).putLong(entry.getValue()[0]).putInt((int) entry.getValue()[1]);
+            }
+            indexBuffer.flip();
+            try (FileChannel idx = FileChannel.open(indexPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND)) {
+                writeFully(idx, indexBuffer);
+                idx.force(false);
+            }
+            index.putAll(newEntries);
+        } catch (IOException e) {
+            // the in-memory tables may now be ahead of the files: read them again on the next access
+            reset();
+            throw e;
+        }
+        return records.size();
+    }
+
+    /**
+     * Reads the methods of a single commit, or null if it is not stored
+     */
+    public synchronized Map<String, MethodInstance> read(String commitHash) throws IOException {
+        open();
+        long[] entry = index.get(commitHash);
+        if (entry == null) {
+            return null;
+        }
+        try (FileChannel log = FileChannel.open(logPath, StandardOpenOption.READ)) {
+            return decode(log, entry);
+        }
+    }
+
+    /**
+     * Loads the selected commits (all of them if commitHashes is null) into target
+     *
+     * @return the number of commits loaded
+     */
+    public synchronized int load(Map<String, Map<String, MethodInstance>> target, Set<String> commitHashes) throws IOException {
+        open();
+        int loaded = 0;
+        try (FileChannel log = FileChannel.open(logPath, StandardOpenOption.READ)) {
+            for (Map.Entry<String, long[]> entry : index.entrySet()) {
+                if (commitHashes != null && !commitHashes.contains(entry.getKey())) {
+                    continue;
+                }
+                target.put(entry.getKey(), decode(log, entry.getValue()));
+                loaded++;
+            }
+        }
+        return loaded;
+    }
+
+    private ByteBuffer encode(Map<String, MethodInstance> methods) {
+        List<Map.Entry<String, MethodInstance>> entries = new ArrayList<>(methods.entrySet());
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + entries.size() * METHOD_RECORD_SIZE);
+        buffer.putInt(entries.size());
+        for (Map.Entry<String, MethodInstance> entry : entries) {
+            MethodInstance method = entry.getValue();
+            buffer.putInt(intern(entry.getKey()))
+                    .putInt(intern(method.getFilePath()))
+                    .putInt(intern(method.getMethodName()))
+                    .putInt(intern(method.getClassName()))
+                    .putInt(method.getLoc())
+                    .putInt(method.getWmc())
+                    .putInt(method.getQtyAssigment())
+                    .putInt(method.getQtyMathOperations())
+                    .putInt(method.getQtyTryCatch())
+                    .putInt(method.getQtyReturn())
+                    .putInt(method.getFanin())
+                    .putInt(method.getFanout())
+                    .putInt(method.getAge())
+                    .putInt(method.getnAuth())
+                    .putInt(method.getNr())
+                    .putInt(method.getnSmells())
+                    .put((byte) (method.isBuggy() ? 1 : 0));
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private Map<String, MethodInstance> decode(FileChannel log, long[] entry) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) entry[1]);
+        readFully(log, buffer, entry[0]);
+        buffer.flip();
+
+        int count = buffer.getInt();
+        Map<String, MethodInstance> methods = new HashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            String key = strings.get(buffer.getInt());
+            MethodInstance method = new MethodInstance();
+            method.setFilePath(strings.get(buffer.getInt()));
+            method.setMethodName(strings.get(buffer.getInt()));
+            // come nel caricamento JSON il nome della classe passa da setClassName
+            method.setClassName(strings.get(buffer.getInt()));
+            method.setLoc(buffer.getInt());
+            method.setWmc(buffer.getInt());
+            method.setQtyAssigment(buffer.getInt());
+            method.setQtyMathOperations(buffer.getInt());
+            method.setQtyTryCatch(buffer.getInt());
+            method.setQtyReturn(buffer.getInt());
+            method.setFanin(buffer.getInt());
+            method.setFanout(buffer.getInt());
+            method.setAge(buffer.getInt());
+            method.setnAuth(buffer.getInt());
+            method.setNr(buffer.getInt());
+            method.setnSmells(buffer.getInt());
+            method.setBuggy(buffer.get() != 0);
+            methods.put(key, method);
+        }
+        return methods;
+    }
+
+    private int intern(String value) {
+        String text = value != null ? value : "";
+        Integer id = stringIds.get(text);
+        if (id == null) {
+            id = strings.size();
+            strings.add(text);
+            stringIds.put(text, id);
+        }
+        return id;
+    }
+
+    private void appendStrings(List<String> newStrings) throws IOException {
+        if (newStrings.isEmpty()) {
+            return;
+        }
+        List<byte[]> encoded = new ArrayList<>(newStrings.size());
+        int size = 0;
+        for (String value : newStrings) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            encoded.add(bytes);
+            size += Integer.BYTES + bytes.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (byte[] bytes : encoded) {
+            buffer.putInt(bytes.length).put(bytes);
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(stringsPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            writeFully(channel, buffer);
+            channel.force(false);
+        }
+    }
+
+    private void open() throws IOException {
+        if (opened) {
+            return;
+        }
+        Files.createDirectories(indexPath.getParent());
+        readStrings();
+        readIndex();
+        opened = true;
+    }
+
+    private void reset() {
+        strings.clear();
+        stringIds.clear();
+        index.clear();
+        opened = false;
+    }
+
+    private void readStrings() throws IOException {
+        if (!Files.exists(stringsPath)) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(stringsPath));
+        int valid = 0;
+        while (buffer.remaining() >= Integer.BYTES) {
+            int length = buffer.getInt();
+            if (length < 0 || buffer.remaining() < length) {
+                break;
+            }
+            String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+            stringIds.put(value, strings.size());
+            strings.add(value);
+            valid = buffer.position();
+        }
+        truncate(stringsPath, valid);
+    }
+
+    private void readIndex() throws IOException {
+        if (!Files.exists(indexPath)) {
+            return;
+        }
+        long logSize = Files.exists(logPath) ? Files.size(logPath) : 0;
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(indexPath));
+        byte[] rawId = new byte[Constants.OBJECT_ID_LENGTH];
+        long validIndex = 0;
+        long validLog = 0;
+        while (buffer.remaining() >= INDEX_ENTRY_SIZE) {
+            buffer.get(rawId);
+            long offset = buffer.getLong();
+            int length = buffer.getInt();
+            if (offset + length > logSize) {
+                break;
+            }
+            index.put(ObjectId.fromRaw(rawId).getName(), new long[]{offset, length});
+            validIndex = buffer.position();
+            validLog = Math.max(validLog, offset + length);
+        }
+        truncate(indexPath, validIndex);
+        truncate(logPath, validLog);
+    }
+
+    private static void truncate(Path path, long size) throws IOException {
+        if (Files.exists(path) && Files.size(path) > size) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.truncate(size);
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long current = position;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, current);
+            if (read < 0) {
+                throw new IOException("Record della commit cache troncato in " + position);
+            }
+            current += read;
+        }
+    }
+}
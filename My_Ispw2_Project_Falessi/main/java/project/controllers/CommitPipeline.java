@@ -0,0 +1,229 @@
+package project.controllers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Three-stage pipeline for the commits of a release: readers produce the commit snapshots,
+ * a pool of analyzers computes their metrics and a single writer merges and persists the results.
+ * The stages are connected by bounded queues, so a slow stage blocks the previous one
+ * (backpressure) instead of letting snapshots and results pile up on the heap.
+ * A failure on one commit is logged and skips that commit only; a thread that dies stops the
+ * whole pipeline, so the other stages never wait on a queue nobody will read or fill.
+ *
+ * @param <I> the input of the pipeline (the commit)
+ * @param <S> the snapshot produced by the readers
+ * @param <R> the result produced by the analyzers
+ */
+public class CommitPipeline<I, S, R> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CommitPipeline.class);
+    // ogni quanto un thread in attesa su una coda controlla se la pipeline è stata interrotta
+    private static final long POLL_TIMEOUT_MS = 100;
+
+    @FunctionalInterface
+    public interface Stage<T, U> {
+        U apply(T value) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface Sink<T, U> {
+        void accept(T input, U value) throws Exception;
+    }
+
+    // element of the queues: the input travels with its value, a null input ends the stream
+    private static final class Item<I, V> {
+        private final I input;
+        private final V value;
+
+        private Item(I input, V value) {
+            this.input = input;
+            this.value = value;
+        }
+    }
+
+    private final int readerThreads;
+    private final int analyzerThreads;
+    private final int queueCapacity;
+
+    public CommitPipeline(int readerThreads, int analyzerThreads, int queueCapacity) {
+        this.readerThreads = Math.max(1, readerThreads);
+        this.analyzerThreads = Math.max(1, analyzerThreads);
+        this.queueCapacity = Math.max(1, queueCapacity);
+    }
+
+    /**
+     * Runs every input through the three stages and waits for the writer to finish.
+     * If a stage thread dies (an Error not tied to a single commit) the other stages are cancelled,
+     * the queues are drained and the failure is rethrown.
+     *
+     * @return the number of inputs that failed in some stage
+     * @throws ExecutionException if a stage thread failed
+     */
+    public int run(List<I> inputs, Stage<I, S> reader, Stage<S, R> analyzer, Sink<I, R> writer) throws InterruptedException, ExecutionException {
+        BlockingQueue<Item<I, S>> snapshots = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Item<I, R>> results = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicInteger nextInput = new AtomicInteger();
+        AtomicInteger failures = new AtomicInteger();
+        // primo errore di un thread della pipeline: quando è impostato tutti gli stage si fermano
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        ExecutorService readers = WorkerExecutors.newStageExecutor(readerThreads);
+        ExecutorService analyzers = WorkerExecutors.newStageExecutor(analyzerThreads);
+        ExecutorService writerThread = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> writing = writerThread.submit(guarded(failure, () -> {
+                for (Item<I, R> item = take(results, failure); item != null && item.input != null; item = take(results, failure)) {
+                    try {
+                        writer.accept(item.input, item.value);
+                    } catch (Exception | OutOfMemoryError e) {
+                        failures.incrementAndGet();
+                        LOGGER.error("Errore nel salvataggio dei risultati del commit: {}", item.input, e);
+                    }
+                }
+            }));
+
+            List<Future<?>> analyzing = new ArrayList<>();
+            for (int i = 0; i < analyzerThreads; i++) {
+                analyzing.add(analyzers.submit(guarded(failure, () -> {
+                    for (Item<I, S> item = take(snapshots, failure); item != null && item.input != null; item = take(snapshots, failure)) {
+                        R result;
+                        try {
+                            result = analyzer.apply(item.value);
+                        } catch (InterruptedException e) {
+                            throw e;
+                        } catch (Exception | OutOfMemoryError e) {
+                            failures.incrementAndGet();
+                            LOGGER.error("Errore durante l'analisi del commit: {}", item.input, e);
+                            continue;
+                        }
+                        if (!put(results, new Item<>(item.input, result), failure)) {
+                            return;
+                        }
+                    }
+                })));
+            }
+
+            List<Future<?>> reading = new ArrayList<>();
+            for (int i = 0; i < readerThreads; i++) {
+                reading.add(readers.submit(guarded(failure, () -> {
+                    for (int index = nextInput.getAndIncrement(); index < inputs.size(); index = nextInput.getAndIncrement()) {
+                        I input = inputs.get(index);
+                        S snapshot;
+                        try {
+                            snapshot = reader.apply(input);
+                        } catch (InterruptedException e) {
+                            throw e;
+                        } catch (Exception | OutOfMemoryError e) {
+                            failures.incrementAndGet();
+                            LOGGER.error("Errore durante la lettura del commit: {}", input, e);
+                            continue;
+                        }
+                        if (!put(snapshots, new Item<>(input, snapshot), failure)) {
+                            return;
+                        }
+                    }
+                })));
+            }
+
+            // ogni stage termina quando quello precedente ha finito e ha ricevuto un segnale di fine per thread
+            await(reading, failure);
+            for (int i = 0; i < analyzerThreads; i++) {
+                put(snapshots, new Item<>(null, null), failure);
+            }
+            await(analyzing, failure);
+            put(results, new Item<>(null, null), failure);
+            await(List.of(writing), failure);
+        } finally {
+            readers.shutdownNow();
+            analyzers.shutdownNow();
+            writerThread.shutdownNow();
+            // gli snapshot e i risultati rimasti in coda dopo un errore non servono più
+            snapshots.clear();
+            results.clear();
+        }
+        if (failure.get() != null) {
+            throw new ExecutionException("Thread della pipeline terminato in modo anomalo", failure.get());
+        }
+        return failures.get();
+    }
+
+    @FunctionalInterface
+    private interface StageLoop {
+        void run() throws Exception;
+    }
+
+    // un errore che esce dal ciclo di uno stage ferma l'intera pipeline
+    private static Callable<Void> guarded(AtomicReference<Throwable> failure, StageLoop loop) {
+        return () -> {
+            try {
+                loop.run();
+            } catch (InterruptedException e) {
+                // interrotto dalla cancellazione dopo un errore di un altro stage
+                failure.compareAndSet(null, e);
+                Thread.currentThread().interrupt();
+            } catch (Exception | Error e) {
+                failure.compareAndSet(null, e);
+                LOGGER.error("Thread della pipeline terminato in modo anomalo", e);
+            }
+            return null;
+        };
+    }
+
+    // put con attesa limitata: false se la pipeline è stata interrotta da un errore
+    private static <T> boolean put(BlockingQueue<T> queue, T item, AtomicReference<Throwable> failure) throws InterruptedException {
+        while (failure.get() == null) {
+            if (queue.offer(item, POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // take con attesa limitata: null se la pipeline è stata interrotta da un errore
+    private static <T> T take(BlockingQueue<T> queue, AtomicReference<Throwable> failure) throws InterruptedException {
+        while (failure.get() == null) {
+            T item = queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            if (item != null) {
+                return item;
+            }
+        }
+        return null;
+    }
+
+    // dopo un errore gli stage ancora attivi sono cancellati invece di essere attesi:
+    // l'interruzione sblocca anche un thread fermo dentro uno stage
+    private static void await(List<Future<?>> futures, AtomicReference<Throwable> failure) throws InterruptedException {
+        for (Future<?> future : futures) {
+            while (!future.isDone()) {
+                if (failure.get() != null) {
+                    future.cancel(true);
+                    break;
+                }
+                try {
+                    future.get(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    // controlla di nuovo se un altro stage è fallito
+                } catch (ExecutionException e) {
+                    failure.compareAndSet(null, e.getCause());
+                } catch (CancellationException e) {
+                    // cancellato dopo l'errore di un altro stage
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package project.controllers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import project.utils.ConstantSize;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits how many commits are in flight at the same time and adapts the limit to the heap.
+ * A commit takes a permit before its snapshot is read and gives it back after the analysis, so
+ * the limit covers the snapshots waiting in the pipeline queue too. A sampler reads the heap pools
+ * and the time spent in GC: when the heap is close to full or the collector takes too much time
+ * the limit is halved, when there is headroom again it grows by one up to the maximum. So the pipeline slows down before an OutOfMemoryError instead of
+ * recovering after it.
+ */
+public class ConcurrencyController implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConcurrencyController.class);
+
+    private final int maxInFlight;
+    private final ScheduledExecutorService sampler;
+    private final List<MemoryPoolMXBean> heapPools;
+    private final List<GarbageCollectorMXBean> collectors;
+
+    private int limit;
+    private int inFlight;
+    private long lastGcTime;
+    private long lastSampleTime;
+
+    public ConcurrencyController(int maxInFlight) {
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.limit = this.maxInFlight;
+        this.heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                // solo la old generation supporta le soglie di uso, eden e survivor no
+                .filter(pool -> pool.getType() == MemoryType.HEAP && pool.isUsageThresholdSupported())
+                .toList();
+        this.collectors = ManagementFactory.getGarbageCollectorMXBeans();
+        this.lastGcTime = totalGcTime();
+        this.lastSampleTime = System.nanoTime();
+
+        this.sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "concurrency-controller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sampler.scheduleAtFixedRate(this::sample, ConstantSize.CONCURRENCY_SAMPLE_MS,
+                ConstantSize.CONCURRENCY_SAMPLE_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Waits until the number of commits in flight is below the current limit and takes a permit
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting; no permit is taken
+     */
+    public synchronized void acquire() throws InterruptedException {
+        while (inFlight >= limit) {
+            wait();
+        }
+        inFlight++;
+    }
+
+    /**
+     * Gives back a permit taken with {@link #acquire()}
+     */
+    public synchronized void release() {
+        inFlight--;
+        notifyAll();
+    }
+
+    private void sample() {
+        long now = System.nanoTime();
+        long gcTime = totalGcTime();
+        double elapsedMs = (now - lastSampleTime) / 1_000_000.0;
+        double gcFraction = elapsedMs > 0 ? (gcTime - lastGcTime) / elapsedMs : 0;
+        lastGcTime = gcTime;
+        lastSampleTime = now;
+
+        double heapUsage = heapUsage();
+        synchronized (this) {
+            int previous = limit;
+            if (heapUsage > ConstantSize.HEAP_HIGH_WATERMARK || gcFraction > ConstantSize.GC_TIME_HIGH_WATERMARK) {
+                limit = Math.max(1, limit / 2);
+            } else if (heapUsage < ConstantSize.HEAP_LOW_WATERMARK && gcFraction < ConstantSize.GC_TIME_LOW_WATERMARK) {
+                limit = Math.min(maxInFlight, limit + 1);
+            }
+            if (limit != previous) {
+                LOGGER.info("Commit in parallelo: {} -> {} (heap {}%, GC {}%)", previous, limit,
+                        Math.round(heapUsage * 100), Math.round(gcFraction * 100));
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Fraction of the old generation still in use after the last collection: young pools are always
+     * being refilled and would hide the real pressure. Without such pools the whole heap is used.
+     */
+    private double heapUsage() {
+        double usage = -1;
+        for (MemoryPoolMXBean pool : heapPools) {
+            MemoryUsage afterGc = pool.getCollectionUsage();
+            if (afterGc != null && afterGc.getMax() > 0) {
+                usage = Math.max(usage, afterGc.getUsed() / (double) afterGc.getMax());
+            }
+        }
+        if (usage < 0) {
+            Runtime runtime = Runtime.getRuntime();
+            usage = (runtime.totalMemory() - runtime.freeMemory()) / (double) runtime.maxMemory();
+        }
+        return usage;
+    }
+
+    private long totalGcTime() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : collectors) {
+            total += Math.max(0, collector.getCollectionTime());
+        }
+        return total;
+    }
+
+    @Override
+    public void close() {
+        sampler.shutdownNow();
+    }
+}
@@ -0,0 +1,171 @@
+package project.controllers;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import project.models.CommitChanges;
+import project.utils.ConstantsWindowsFormat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * On-disk index commit id -> Java paths added, modified, deleted and renamed by the commit.
+ * A commit never changes, so its diff is computed once and then read from the index by every
+ * release and every following run. The file is append-only: every record is the raw commit id,
+ * the length of the payload and the four lists of paths; a torn or unreadable record, and
+ * everything after it, is truncated when the index is loaded.
+ */
+public class DiffIndex {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DiffIndex.class);
+    private static final int HEADER_SIZE = Constants.OBJECT_ID_LENGTH + Integer.BYTES;
+
+    private final Path indexPath;
+    private final Map<ObjectId, CommitChanges> changesByCommit = new ConcurrentHashMap<>();
+
+    public DiffIndex(String projectName) {
+        this(ConstantsWindowsFormat.CACHE_PATH.resolve(projectName.toLowerCase() + "_diff_index.bin"));
+    }
+
+    DiffIndex(Path indexPath) {
+        this.indexPath = indexPath;
+        load();
+    }
+
+    public CommitChanges get(ObjectId commitId) {
+        return changesByCommit.get(commitId);
+    }
+
+    public int size() {
+        return changesByCommit.size();
+    }
+
+    /**
+     * Appends the commits that are not in the index yet
+     */
+    public synchronized void append(Map<ObjectId, CommitChanges> changes) {
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        Map<ObjectId, CommitChanges> added = new LinkedHashMap<>();
+        byte[] rawId = new byte[Constants.OBJECT_ID_LENGTH];
+        try {
+            for (Map.Entry<ObjectId, CommitChanges> entry : changes.entrySet()) {
+                if (changesByCommit.containsKey(entry.getKey()) || added.containsKey(entry.getKey())) {
+                    continue;
+                }
+                byte[] payload = encode(entry.getValue());
+                entry.getKey().copyRawTo(rawId, 0);
+                records.write(rawId);
+                records.write(ByteBuffer.allocate(Integer.BYTES).putInt(payload.length).array());
+                records.write(payload);
+                added.put(entry.getKey().copy(), entry.getValue());
+            }
+            if (added.isEmpty()) {
+                return;
+            }
+
+            Files.createDirectories(indexPath.getParent());
+            try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND)) {
+                ByteBuffer buffer = ByteBuffer.wrap(records.toByteArray());
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            }
+            changesByCommit.putAll(added);
+        } catch (IOException e) {
+            // i commit non salvati saranno ricalcolati alla prossima esecuzione
+            LOGGER.error("Errore durante la scrittura dell'indice delle differenze {}", indexPath, e);
+        }
+    }
+
+    private void load() {
+        if (!Files.exists(indexPath)) {
+            return;
+        }
+        try {
+            ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(indexPath));
+            byte[] rawId = new byte[Constants.OBJECT_ID_LENGTH];
+            long validSize = 0;
+            while (data.remaining() >= HEADER_SIZE) {
+                data.get(rawId);
+                int length = data.getInt();
+                if (length < 0 || data.remaining() < length) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                data.get(payload);
+                CommitChanges changes;
+                try {
+                    changes = decode(payload);
+                } catch (IOException e) {
+                    LOGGER.warn("Record non leggibile nell'indice delle differenze {} alla posizione {}", indexPath, validSize, e);
+                    break;
+                }
+                changesByCommit.put(ObjectId.fromRaw(rawId), changes);
+                validSize = data.position();
+            }
+            if (validSize < data.capacity()) {
+                LOGGER.warn("Indice delle differenze {} troncato a {} byte", indexPath, validSize);
+                try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.WRITE)) {
+                    channel.truncate(validSize);
+                }
+            }
+            LOGGER.info("Indice delle differenze caricato da {} con {} commit", indexPath, changesByCommit.size());
+        } catch (IOException e) {
+            LOGGER.error("Errore durante il caricamento dell'indice delle differenze {}", indexPath, e);
+            changesByCommit.clear();
+        }
+    }
+
+    private static byte[] encode(CommitChanges changes) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writePaths(out, changes.getAdded());
+            writePaths(out, changes.getModified());
+            writePaths(out, changes.getDeleted());
+            writePaths(out, changes.getRenamed());
+        }
+        return bytes.toByteArray();
+    }
+
+    private static CommitChanges decode(byte[] payload) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            return new CommitChanges(readPaths(in), readPaths(in), readPaths(in), readPaths(in));
+        }
+    }
+
+    private static void writePaths(DataOutputStream out, List<String> paths) throws IOException {
+        out.writeInt(paths.size());
+        for (String path : paths) {
+            out.writeUTF(path);
+        }
+    }
+
+    private static List<String> readPaths(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        // ogni percorso occupa almeno i due byte della lunghezza
+        if (size < 0 || size > in.available() / 2) {
+            throw new IOException("Numero di percorsi non valido: " + size);
+        }
+        List<String> paths = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            paths.add(in.readUTF());
+        }
+        return paths;
+    }
+}
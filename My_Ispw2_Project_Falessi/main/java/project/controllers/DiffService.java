@@ -0,0 +1,180 @@
+package project.controllers;
+
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.util.io.DisabledOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import project.models.CommitChanges;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Computes the Java paths changed by many commits with respect to their first parent.
+ * The commits already in the {@link DiffIndex} are read from it; the others are split in
+ * contiguous blocks, one per worker: every worker has its own ObjectReader, RevWalk and
+ * DiffFormatter, so nothing is shared between threads, and the parent of a commit is usually
+ * the previous commit of the same block, already parsed. The new diffs are appended to the index
+ * and the results are returned in the order of the input commits.
+ */
+public class DiffService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DiffService.class);
+    private static final String SUFFIX = ".java";
+    private static final String PREFIX = "/test/";
+
+    private final Repository repository;
+    private final int threads;
+    private final DiffIndex diffIndex;
+
+    public DiffService(Repository repository, int threads, DiffIndex diffIndex) {
+        this.repository = repository;
+        this.threads = Math.max(1, threads);
+        this.diffIndex = diffIndex;
+    }
+
+    /**
+     * @return the changes of every commit, in the same order of the commits;
+     * a commit without parent or that cannot be read has no changes
+     */
+    public List<CommitChanges> diff(List<? extends ObjectId> commits) {
+        CommitChanges[] results = new CommitChanges[commits.size()];
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < commits.size(); i++) {
+            results[i] = diffIndex.get(commits.get(i));
+            if (results[i] == null) {
+                missing.add(i);
+            }
+        }
+        if (missing.isEmpty()) {
+            return Arrays.asList(results);
+        }
+
+        int workers = Math.min(threads, missing.size());
+        if (workers <= 1) {
+            diffRange(commits, missing, 0, missing.size(), results);
+        } else {
+            int blockSize = (missing.size() + workers - 1) / workers;
+            ExecutorService executor = Executors.newFixedThreadPool(workers);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int from = 0; from < missing.size(); from += blockSize) {
+                    int start = from;
+                    int end = Math.min(missing.size(), from + blockSize);
+                    futures.add(executor.submit(() -> diffRange(commits, missing, start, end, results)));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ProcessingInterruptedException("Calcolo delle differenze interrotto", e);
+            } catch (ExecutionException e) {
+                throw new ProcessingInterruptedException("Errore nel calcolo delle differenze", e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        // un commit che non è stato possibile leggere non va nell'indice, sarà ricalcolato
+        Map<ObjectId, CommitChanges> computed = new LinkedHashMap<>();
+        for (int i : missing) {
+            if (results[i] == null) {
+                results[i] = CommitChanges.EMPTY;
+            } else {
+                computed.put(commits.get(i).copy(), results[i]);
+            }
+        }
+        diffIndex.append(computed);
+        return Arrays.asList(results);
+    }
+
+    /**
+     * @return the paths that are non-test Java classes
+     */
+    public static List<String> classPaths(List<String> paths) {
+        List<String> classPaths = new ArrayList<>(paths.size());
+        for (String path : paths) {
+            if (isClass(path)) {
+                classPaths.add(path);
+            }
+        }
+        return classPaths;
+    }
+
+    public static boolean isClass(String path) {
+        return path.contains(SUFFIX) && !path.contains(PREFIX);
+    }
+
+    private void diffRange(List<? extends ObjectId> commits, List<Integer> positions, int from, int to, CommitChanges[] results) {
+        try (ObjectReader reader = repository.newObjectReader();
+             RevWalk revWalk = new RevWalk(reader);
+             DiffFormatter diffFormatter = new DiffFormatter(DisabledOutputStream.INSTANCE)) {
+            diffFormatter.setReader(reader, repository.getConfig());
+            diffFormatter.setDiffComparator(RawTextComparator.DEFAULT);
+            // un file rinominato è riportato con il nuovo percorso invece che come aggiunta e cancellazione
+            diffFormatter.setDetectRenames(true);
+            for (int i = from; i < to; i++) {
+                int position = positions.get(i);
+                List<DiffEntry> diffs = diff(commits.get(position), revWalk, diffFormatter);
+                results[position] = diffs == null ? null : changes(diffs);
+            }
+        }
+    }
+
+    // nell'indice sono salvati solo i file Java, i test compresi
+    private static CommitChanges changes(List<DiffEntry> diffs) {
+        List<String> added = new ArrayList<>();
+        List<String> modified = new ArrayList<>();
+        List<String> deleted = new ArrayList<>();
+        List<String> renamed = new ArrayList<>();
+        for (DiffEntry diff : diffs) {
+            switch (diff.getChangeType()) {
+                case ADD -> addJava(added, diff.getNewPath());
+                case MODIFY -> addJava(modified, diff.getNewPath());
+                case DELETE -> addJava(deleted, diff.getOldPath());
+                case RENAME -> addJava(renamed, diff.getNewPath());
+                default -> {
+                    // COPY lascia invariato il file di origine
+                }
+            }
+        }
+        return new CommitChanges(added, modified, deleted, renamed);
+    }
+
+    private static void addJava(List<String> paths, String path) {
+        if (path.contains(SUFFIX)) {
+            paths.add(path);
+        }
+    }
+
+    // null se il commit non può essere letto
+    private static List<DiffEntry> diff(ObjectId commitId, RevWalk revWalk, DiffFormatter diffFormatter) {
+        try {
+            RevCommit current = revWalk.parseCommit(commitId);
+            if (current.getParentCount() == 0) {
+                return Collections.emptyList();
+            }
+            RevCommit parent = revWalk.parseCommit(current.getParent(0));
+            return diffFormatter.scan(parent.getTree(), current.getTree());
+        } catch (IOException e) {
+            LOGGER.warn("Impossibile calcolare le differenze del commit {}: {}", commitId.name(), e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package project.controllers;
+
+import org.eclipse.jgit.lib.Repository;
+import project.models.ClassFile;
+import project.models.CommitChanges;
+import project.models.CommitDescriptor;
+import project.models.CommitTable;
+import project.models.Release;
+import project.utils.ConstantSize;
+
+import java.util.BitSet;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Computes the history metrics of the classes (NR, nAuth and creation date) walking the commits
+ * of all the releases once. Every commit is diffed against its parent a single time, by the
+ * parallel {@link DiffService}, and the entries are classified as added or modified in the same
+ * pass; the counters are kept in arrays indexed by the position of the class in its release,
+ * updated in commit order and written to the ClassFile objects when the release is complete.
+ */
+public class HistoryMetricsEngine {
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    private final DiffService diffService;
+    // gli autori sono indicati con l'id della tabella dei commit
+    private final CommitTable commitTable;
+
+    public HistoryMetricsEngine(Repository repository, DiffIndex diffIndex, CommitTable commitTable) {
+        this.diffService = new DiffService(repository, ConstantSize.DIFF_THREADS, diffIndex);
+        this.commitTable = commitTable;
+    }
+
+    public void compute(List<Release> releaseList) {
+        Release precRelease = null;
+        for (Release release : releaseList) {
+            computeRelease(release, precRelease);
+            precRelease = release;
+        }
+    }
+
+    private void computeRelease(Release release, Release precRelease) {
+        ClassFile[] files = release.getClassFiles();
+        Map<String, Integer> fileIds = new HashMap<>(files.length * 2);
+        int[] revisions = new int[files.length];
+        long[] creationDates = new long[files.length];
+        BitSet[] authors = new BitSet[files.length];
+        for (int i = 0; i < files.length; i++) {
+            fileIds.put(files[i].getPath(), i);
+            Date creationDate = files[i].getCreationDate();
+            creationDates[i] = creationDate == null ? NO_DATE : creationDate.getTime();
+            authors[i] = new BitSet();
+        }
+
+        List<CommitDescriptor> commits = release.getAllReleaseCommits();
+        // le differenze sono calcolate in parallelo, i contatori sono aggiornati in ordine di commit
+        List<CommitChanges> commitChanges = diffService.diff(commits);
+        for (int c = 0; c < commits.size(); c++) {
+            CommitDescriptor commit = commits.get(c);
+            CommitChanges changes = commitChanges.get(c);
+            long commitTime = commit.getCommitTime();
+            int authorId = commit.getAuthorId();
+
+            List<String> modified = DiffService.classPaths(changes.getModified());
+            for (String path : modified) {
+                Integer id = fileIds.get(path);
+                if (id != null) {
+                    authors[id].set(authorId);
+                    revisions[id]++;
+                }
+            }
+            // come nel calcolo originale, le date di creazione sono aggiornate solo se il commit modifica classi
+            if (modified.isEmpty()) {
+                continue;
+            }
+            // un file rinominato è un nuovo file per il suo nuovo percorso
+            for (List<String> paths : List.of(changes.getAdded(), changes.getRenamed())) {
+                for (String path : DiffService.classPaths(paths)) {
+                    Integer id = fileIds.get(path);
+                    if (id != null) {
+                        creationDates[id] = creationDate(creationDates[id], commitTime, precRelease, path);
+                    }
+                }
+            }
+        }
+
+        long firstCommitTime = commits.isEmpty() ? NO_DATE : commits.get(0).getCommitTime();
+        for (int i = 0; i < files.length; i++) {
+            files[i].addNR(revisions[i]);
+            for (int author = authors[i].nextSetBit(0); author >= 0; author = authors[i].nextSetBit(author + 1)) {
+                files[i].addAuthor(commitTable.getAuthorName(author));
+            }
+            long creationDate = creationDates[i] != NO_DATE ? creationDates[i] : firstCommitTime;
+            if (creationDate != NO_DATE) {
+                files[i].setCreationDate(new Date(creationDate));
+            }
+        }
+    }
+
+    // una classe già presente nella release precedente prende la data dell'ultima aggiunta, le altre la più vecchia
+    private static long creationDate(long current, long commitTime, Release precRelease, String path) {
+        if (precRelease != null && precRelease.getClassFileByPath(path) != null) {
+            return commitTime;
+        }
+        return current == NO_DATE || commitTime < current ? commitTime : current;
+    }
+
+}
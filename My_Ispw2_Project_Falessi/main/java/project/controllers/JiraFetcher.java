@@ -0,0 +1,260 @@
+package project.controllers;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the Jira REST API through an on-disk cache of the raw responses.
+ * A response is stored per project and query and reused until it is older than the TTL; when
+ * Jira cannot be reached an expired response is still used, so a rerun can work offline.
+ * The search is paginated: the first page gives the total, the other pages are fetched in parallel.
+ * A search is cached and expires as one unit, all its pages in a single file, so the pages
+ * reused together always come from the same download.
+ * The base URL can be changed with the system property {@code jira.baseUrl}, e.g. to point to a
+ * local server.
+ */
+public class JiraFetcher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JiraFetcher.class);
+    private static final String DEFAULT_BASE_URL = "https://issues.apache.org/jira";
+    private static final int MAX_RETRIES = 5;
+    private static final int CONNECTION_TIMEOUT = 60000;
+    private static final int READ_TIMEOUT = 60000;
+    private static final int RETRY_DELAY_SECONDS = 10;
+
+    private final String baseUrl;
+    private final Path cacheDir;
+    private final Duration ttl;
+    private final int threads;
+
+    public JiraFetcher(Path cacheDir, Duration ttl, int threads) {
+        this(System.getProperty("jira.baseUrl", DEFAULT_BASE_URL), cacheDir, ttl, threads);
+    }
+
+    public JiraFetcher(String baseUrl, Path cacheDir, Duration ttl, int threads) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.cacheDir = cacheDir;
+        this.ttl = ttl;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Runs a JQL search and returns the raw body of all its pages, in order
+     */
+    public List<String> search(String projKey, String jql, String fields, int pageSize) throws IOException {
+        Path cacheFile = cacheDir.resolve(projKey.toLowerCase() + "_search_" + hash(searchPath(jql, fields, 0, pageSize)) + ".json");
+        boolean cached = Files.exists(cacheFile);
+        if (cached && !isExpired(cacheFile)) {
+            List<String> pages = readCachedPages(cacheFile);
+            if (pages != null) {
+                return pages;
+            }
+        }
+
+        List<String> pages;
+        try {
+            pages = fetchPages(jql, fields, pageSize);
+        } catch (IOException e) {
+            List<String> stale = cached ? readCachedPages(cacheFile) : null;
+            if (stale == null) {
+                throw e;
+            }
+            LOGGER.warn("Jira non raggiungibile, uso la ricerca scaduta in cache {}", cacheFile);
+            return stale;
+        }
+        writeCached(cacheFile, new JSONArray(pages).toString());
+        return pages;
+    }
+
+    // tutte le pagine sono scaricate insieme: la cache non mescola pagine di download diversi
+    private List<String> fetchPages(String jql, String fields, int pageSize) throws IOException {
+        String firstPage = fetchWithRetry(baseUrl + searchPath(jql, fields, 0, pageSize));
+        int total = JiraIssueParser.readTotal(firstPage);
+
+        List<String> pages = new ArrayList<>();
+        pages.add(firstPage);
+        if (total <= pageSize) {
+            return pages;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int startAt = pageSize; startAt < total; startAt += pageSize) {
+                String url = baseUrl + searchPath(jql, fields, startAt, pageSize);
+                futures.add(executor.submit(() -> fetchWithRetry(url)));
+            }
+            for (Future<String> future : futures) {
+                pages.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while fetching Jira pages", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException("Error while fetching Jira pages", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return pages;
+    }
+
+    /**
+     * Returns the raw response of a path of the API (e.g. {@code /rest/api/latest/project/X/version}),
+     * from the cache when it is still valid
+     */
+    public String get(String projKey, String path) throws IOException {
+        Path cacheFile = cacheDir.resolve(projKey.toLowerCase() + "_" + hash(path) + ".json");
+        boolean cached = Files.exists(cacheFile);
+        if (cached && !isExpired(cacheFile)) {
+            String response = readCached(cacheFile);
+            if (response != null) {
+                return response;
+            }
+        }
+
+        String body;
+        try {
+            body = fetchWithRetry(baseUrl + path);
+        } catch (IOException e) {
+            String stale = cached ? readCached(cacheFile) : null;
+            if (stale == null) {
+                throw e;
+            }
+            LOGGER.warn("Jira non raggiungibile, uso la risposta scaduta in cache {}", cacheFile);
+            return stale;
+        }
+        writeCached(cacheFile, body);
+        return body;
+    }
+
+    private static String searchPath(String jql, String fields, int startAt, int maxResults) {
+        return String.format("/rest/api/2/search?jql=%s&fields=%s&startAt=%d&maxResults=%d",
+                URLEncoder.encode(jql, StandardCharsets.UTF_8), fields, startAt, maxResults);
+    }
+
+    private boolean isExpired(Path cacheFile) throws IOException {
+        FileTime modified = Files.getLastModifiedTime(cacheFile);
+        return modified.toInstant().plus(ttl).isBefore(Instant.now());
+    }
+
+    private static String readCached(Path cacheFile) {
+        try {
+            return Files.readString(cacheFile, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            LOGGER.warn("Risposta Jira in cache non leggibile {}: {}", cacheFile, e.getMessage());
+            return null;
+        }
+    }
+
+    private static List<String> readCachedPages(Path cacheFile) {
+        String body = readCached(cacheFile);
+        if (body == null) {
+            return null;
+        }
+        try {
+            JSONArray pagesJson = new JSONArray(body);
+            List<String> pages = new ArrayList<>(pagesJson.length());
+            for (int i = 0; i < pagesJson.length(); i++) {
+                pages.add(pagesJson.getString(i));
+            }
+            return pages;
+        } catch (JSONException e) {
+            LOGGER.warn("Ricerca Jira in cache non valida {}: {}", cacheFile, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeCached(Path cacheFile, String body) {
+        try {
+            Files.createDirectories(cacheDir);
+            Path tmpFile = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp" + Thread.currentThread().getId());
+            Files.writeString(tmpFile, body, StandardCharsets.UTF_8);
+            Files.move(tmpFile, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            LOGGER.warn("Impossibile salvare la risposta Jira in {}: {}", cacheFile, e.getMessage());
+        }
+    }
+
+    private static String fetchWithRetry(String urlString) throws IOException {
+        IOException lastException = null;
+        for (int attempt = 1; attempt <= MAX_RETRIES; attempt++) {
+            try {
+                return fetch(urlString);
+            } catch (IOException e) {
+                lastException = e;
+                LOGGER.warn("Tentativo {}/{} verso Jira fallito: {}", attempt, MAX_RETRIES, e.getMessage());
+                if (attempt < MAX_RETRIES) {
+                    try {
+                        TimeUnit.SECONDS.sleep(RETRY_DELAY_SECONDS);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Interrupted during retry", ie);
+                    }
+                }
+            }
+        }
+        throw new IOException(String.format("Failed after %d attempts to connect to JIRA", MAX_RETRIES), lastException);
+    }
+
+    private static String fetch(String urlString) throws IOException {
+        LOGGER.info("Connecting to: {}", urlString);
+        URLConnection connection = new URL(urlString).openConnection();
+        connection.setConnectTimeout(CONNECTION_TIMEOUT);
+        connection.setReadTimeout(READ_TIMEOUT);
+        connection.setRequestProperty("Accept", "application/json");
+        connection.setRequestProperty("User-Agent", "Mozilla/5.0");
+
+        try (InputStream inputStream = connection.getInputStream()) {
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            if (connection instanceof HttpURLConnection httpConn) {
+                try (InputStream errorStream = httpConn.getErrorStream()) {
+                    if (errorStream != null) {
+                        LOGGER.error("JIRA API Error Response: {}", new String(errorStream.readAllBytes(), StandardCharsets.UTF_8));
+                    }
+                }
+            }
+            throw e;
+        }
+    }
+
+    private static String hash(String path) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(path.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(path.hashCode());
+        }
+    }
+}
@@ -1,106 +1,97 @@
 package project.controllers;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.net.URLConnection;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.io.StringReader;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 
-import org.json.JSONTokener;
 import project.models.Release;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 import project.models.Ticket;
+import project.utils.ConstantSize;
+import project.utils.ConstantsWindowsFormat;
 
 
 
 public class JiraInfoRetrieve {
-    private static final Logger LOGGER = Logger.getLogger(JiraInfoRetrieve.class.getName());
-    private static final int MAX_RETRIES = 5;  // Increased from 3 to 5
-    private static final int CONNECTION_TIMEOUT = 60000;  // Increased to 60 seconds
-    private static final int READ_TIMEOUT = 60000;  // Increased to 60 seconds
-    private static final int RETRY_DELAY_SECONDS = 10;  // Increased delay between retries
+    // DateTimeFormatter è immutabile, quindi condiviso tra i thread che analizzano le pagine
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSZ");
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ISO_LOCAL_DATE;
 
     private final String projKey;
+    private final JiraFetcher jiraFetcher;
     private final List<Ticket> ticketsWithValidAV;
 
     public JiraInfoRetrieve(String projName) {
         this.projKey = projName.toUpperCase();
         this.ticketsWithValidAV = new ArrayList<>();
+        this.jiraFetcher = new JiraFetcher(ConstantsWindowsFormat.JIRA_CACHE_PATH,
+                Duration.ofHours(ConstantSize.JIRA_CACHE_TTL_HOURS), ConstantSize.JIRA_FETCH_THREADS);
     }
 
     public List<Ticket> getTicketsWithValidAV() {
         return this.ticketsWithValidAV;
     }
 
-    public List<Ticket> retrieveTickets(List<Release> releasesList) throws IOException, ParseException {
-        List<Ticket> allTickets = new ArrayList<>();
-        JSONObject jsonObject = getInfoFromJiraWithRetry(1000, 0);
-        JSONArray issues = jsonObject.getJSONArray("issues");
-        int total = jsonObject.getInt("total");
-        int counter = 0;
+    public List<Ticket> retrieveTickets(List<Release> releasesList) throws IOException {
+        String jql = String.format("project=\"%s\" AND issueType=\"Bug\" AND (status=\"closed\" OR status=\"resolved\") AND resolution=\"fixed\" ORDER BY key",
+                this.projKey);
+        // le pagine successive alla prima sono scaricate in parallelo, o lette dalla cache;
+        // l'ordine per chiave rende stabile la paginazione
+        List<String> pages = jiraFetcher.search(projKey, jql, "key,resolutiondate,versions,created,issuetype", ConstantSize.JIRA_PAGE_SIZE);
 
-        if (total <= issues.length()) {
-            return getTickets(issues, releasesList);
-        } else {
-            do {
-                allTickets.addAll(getTickets(issues, releasesList));
-                if (counter <= total) {
-                    counter += 1000;
-                    jsonObject = getInfoFromJiraWithRetry(1000, counter);
-                    issues = jsonObject.getJSONArray("issues");
-                    total = jsonObject.getInt("total");
+        long[] releaseTimes = new long[releasesList.size()];
+        for (int i = 0; i < releaseTimes.length; i++) {
+            releaseTimes[i] = releasesList.get(i).getDate().getTime();
+        }
+        // ogni pagina è analizzata in modo indipendente, i risultati restano nell'ordine delle pagine
+        List<List<Ticket>> pageTickets = pages.parallelStream()
+                .map(page -> getTickets(JiraIssueParser.parseIssues(new StringReader(page)), releasesList, releaseTimes))
+                .toList();
+
+        List<Ticket> allTickets = new ArrayList<>();
+        for (List<Ticket> tickets : pageTickets) {
+            for (Ticket ticket : tickets) {
+                if (ticket.getIv() != null) {
+                    this.ticketsWithValidAV.add(ticket);
                 }
-            } while (counter <= total);
+                allTickets.add(ticket);
+            }
         }
         return allTickets;
     }
 
-    private List<Ticket> getTickets(JSONArray issues, List<Release> releasesList) throws ParseException {
-        SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ");
+    private static List<Ticket> getTickets(List<JiraIssueParser.Issue> issues, List<Release> releasesList, long[] releaseTimes) {
         List<Ticket> tickets = new ArrayList<>();
 
-        for (int i = 0; i < issues.length(); i++) {
-            JSONObject issue = issues.getJSONObject(i);
-            String key = issue.getString("key");
-            JSONObject fields = issue.getJSONObject("fields");
-
-            String resolutionDateString = fields.getString("resolutiondate");
-            String creationDateString = fields.getString("created");
-            JSONArray av = fields.getJSONArray("versions");
-            // Estrazione del tipo di ticket
-            String issueType = fields.getJSONObject("issuetype").getString("name");
-
+        for (JiraIssueParser.Issue issue : issues) {
+            Date resolutionDate = parseTimestamp(issue.getResolutionDate());
+            Date creationDate = parseTimestamp(issue.getCreated());
 
-            Date resolutionDate = formatter.parse(resolutionDateString);
-            Date creationDate = formatter.parse(creationDateString);
-
-            Release creationRelease = getReleaseFromDate(releasesList, creationDate);
-            Release resolutionRelease = getReleaseFromDate(releasesList, resolutionDate);
+            Release creationRelease = getReleaseFromDate(releasesList, releaseTimes, creationDate);
+            Release resolutionRelease = getReleaseFromDate(releasesList, releaseTimes, resolutionDate);
             if (creationRelease == null || resolutionRelease == null) continue;
 
             Date firstDate = null;
-            if (av.length() > 0) {
-                firstDate = validateAV(resolutionRelease, creationRelease, av);
+            if (!issue.getReleasedVersionDates().isEmpty()) {
+                firstDate = validateAV(resolutionRelease, creationRelease, issue.getReleasedVersionDates());
             }
 
             Ticket ticket;
             if (firstDate != null && creationRelease.getDate().before(resolutionRelease.getDate())) {
-                Release corrRelease = getReleaseFromDate(releasesList, firstDate);
-                ticket = new Ticket(key, creationRelease, resolutionRelease, corrRelease);
-                this.ticketsWithValidAV.add(ticket);
+                Release corrRelease = getReleaseFromDate(releasesList, releaseTimes, firstDate);
+                ticket = new Ticket(issue.getKey(), creationRelease, resolutionRelease, corrRelease);
             } else {
-                ticket = new Ticket(key, creationRelease, resolutionRelease, null);
+                ticket = new Ticket(issue.getKey(), creationRelease, resolutionRelease, null);
             }
 
             tickets.add(ticket);
@@ -108,144 +99,59 @@ public class JiraInfoRetrieve {
         return tickets;
     }
 
-    private Date validateAV(Release resolution, Release creation, JSONArray av) throws ParseException {
-        SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd");
+    private static Date validateAV(Release resolution, Release creation, List<String> releasedVersionDates) {
         Date firstDate = null;
 
-        for (int i = 0; i < av.length(); i++) {
-            JSONObject avElem = av.getJSONObject(i);
-            if (avElem.getBoolean("released")) {
-                try {
-                    String releaseDateString = avElem.getString("releaseDate");
-                    Date releaseDate = formatter.parse(releaseDateString);
-                    if (releaseDate.before(resolution.getDate()) &&
-                            (firstDate == null || releaseDate.before(firstDate))) {
-                        firstDate = releaseDate;
-                    }
-                } catch (JSONException e) {
-                    continue;
-                }
+        for (String releaseDateString : releasedVersionDates) {
+            Date releaseDate = parseDay(releaseDateString);
+            if (releaseDate.before(resolution.getDate()) &&
+                    (firstDate == null || releaseDate.before(firstDate))) {
+                firstDate = releaseDate;
             }
         }
         return (firstDate != null && creation.getDate().after(firstDate)) ? firstDate : null;
     }
 
-    private Release getReleaseFromDate(List<Release> list, Date date) {
-        if (list.isEmpty()) return null;
-
-        if (date.before(list.get(0).getDate()) || date.equals(list.get(0).getDate())) {
-            return list.get(0);
-        }
-        if (date.after(list.get(list.size()-1).getDate())) {
-            return null;
-        }
-
-        for (int i = 0; i < list.size()-1; i++) {
-            if (date.equals(list.get(i).getDate())) {
-                return list.get(i);
-            }
-            if (date.after(list.get(i).getDate()) && date.before(list.get(i+1).getDate())) {
-                return list.get(i+1);
+    // prima release con data non precedente a quella data, null se la data è dopo l'ultima release
+    private static Release getReleaseFromDate(List<Release> list, long[] releaseTimes, Date date) {
+        long time = date.getTime();
+        int low = 0;
+        int high = releaseTimes.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (releaseTimes[mid] < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
             }
         }
-        return null;
+        return low < releaseTimes.length ? list.get(low) : null;
     }
 
-    private JSONObject getInfoFromJiraWithRetry(int numResults, int startAt) throws IOException {
-        int retryCount = 0;
-        IOException lastException = null;
-
-        while (retryCount < MAX_RETRIES) {
-            try {
-                LOGGER.info(String.format("Attempting JIRA connection (Attempt %d/%d)",
-                        retryCount + 1, MAX_RETRIES));
-                return getInfoFromJira(numResults, startAt);
-            } catch (IOException e) {
-                lastException = e;
-                retryCount++;
-                LOGGER.log(Level.WARNING, String.format("Attempt %d failed. Waiting %d seconds before retry...",
-                        retryCount, RETRY_DELAY_SECONDS), e);
-
-                if (retryCount < MAX_RETRIES) {
-                    try {
-                        TimeUnit.SECONDS.sleep(RETRY_DELAY_SECONDS);
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        throw new IOException("Interrupted during retry", ie);
-                    }
-                }
-            }
-        }
-
-        LOGGER.log(Level.SEVERE, "All connection attempts failed", lastException);
-        throw new IOException(String.format("Failed after %d attempts to connect to JIRA", MAX_RETRIES), lastException);
+    private static Date parseTimestamp(String value) {
+        return Date.from(OffsetDateTime.parse(value, TIMESTAMP_FORMAT).toInstant());
     }
 
-    private JSONObject getInfoFromJira(int numResults, int startAt) throws IOException {
-        // URL encode the JQL query parameters
-        String jql = String.format("project=\"%s\" AND issueType=\"Bug\" AND (status=\"closed\" OR status=\"resolved\") AND resolution=\"fixed\"",
-                this.projKey);
-        String encodedJql = java.net.URLEncoder.encode(jql, "UTF-8");
-
-        String urlString = String.format(
-                "https://issues.apache.org/jira/rest/api/2/search?jql=%s&fields=key,resolutiondate,versions,created,issuetype&startAt=%d&maxResults=%d",
-                encodedJql, startAt, numResults
-        );
-
-        LOGGER.info("Connecting to: " + urlString);
-        URL url = new URL(urlString);
-        URLConnection connection = url.openConnection();
-
-        // Set timeouts and request properties
-        connection.setConnectTimeout(CONNECTION_TIMEOUT);
-        connection.setReadTimeout(READ_TIMEOUT);
-        connection.setRequestProperty("Accept", "application/json");
-        connection.setRequestProperty("User-Agent", "Mozilla/5.0");
-
-        try (InputStream inputStream = connection.getInputStream()) {
-            JSONTokener tokener = new JSONTokener(inputStream);
-            return new JSONObject(tokener);
-        } catch (IOException e) {
-            // Get more detailed error information if available
-            if (connection instanceof HttpURLConnection) {
-                HttpURLConnection httpConn = (HttpURLConnection) connection;
-                String errorResponse = "";
-                try (InputStream errorStream = httpConn.getErrorStream()) {
-                    if (errorStream != null) {
-                        errorResponse = new String(errorStream.readAllBytes());
-                    }
-                }
-                LOGGER.log(Level.SEVERE, "JIRA API Error Response: " + errorResponse, e);
-            }
-            throw e;
-        }
+    // le date delle versioni non hanno fuso orario: mezzanotte nel fuso locale, come con SimpleDateFormat
+    private static Date parseDay(String value) {
+        return Date.from(LocalDate.parse(value, DAY_FORMAT).atStartOfDay(ZoneId.systemDefault()).toInstant());
     }
 
-    public List<Release> retrieveReleases() throws JSONException, IOException, ParseException {
+    public List<Release> retrieveReleases() throws JSONException, IOException {
         List<Release> allRelease = new ArrayList<>();
-        SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd");
 
-        String urlString = "https://issues.apache.org/jira/rest/api/latest/project/" + projKey + "/version";
-        URL url = new URL(urlString);
-        URLConnection connection = url.openConnection();
-        connection.setConnectTimeout(CONNECTION_TIMEOUT);
-        connection.setReadTimeout(READ_TIMEOUT);
+        JSONObject json = new JSONObject(jiraFetcher.get(projKey, "/rest/api/latest/project/" + projKey + "/version"));
+        JSONArray values = json.getJSONArray("values");
 
-        try (InputStream inputStream = connection.getInputStream()) {
-            JSONTokener tokener = new JSONTokener(inputStream);
-            JSONObject json = new JSONObject(tokener);
-            JSONArray values = json.getJSONArray("values");
-
-            for (int i = 0; i < values.length(); i++) {
-                JSONObject value = values.getJSONObject(i);
-                if (value.getBoolean("released")) {
-                    try {
-                        String name = value.getString("name");
-                        String date = value.getString("releaseDate");
-                        allRelease.add(new Release(-1, name, formatter.parse(date)));
-                    } catch (JSONException e) {
-                        continue;
-                    }
+        for (int i = 0; i < values.length(); i++) {
+            JSONObject value = values.getJSONObject(i);
+            if (value.getBoolean("released")) {
+                try {
+                    String name = value.getString("name");
+                    String date = value.getString("releaseDate");
+                    allRelease.add(new Release(-1, name, parseDay(date)));
+                } catch (JSONException e) {
+                    continue;
                 }
             }
         }
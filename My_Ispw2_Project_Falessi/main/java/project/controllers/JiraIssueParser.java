@@ -0,0 +1,209 @@
+package project.controllers;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming parser of the pages returned by the Jira search. It walks the response with a
+ * JSONTokener and keeps only the fields used to build the tickets (key, creation and resolution
+ * date, release dates of the released affected versions); everything else is skipped without
+ * building the JSON tree of the page. The parser has no state, so pages can be parsed in parallel.
+ */
+public class JiraIssueParser {
+
+    /**
+     * Fields of an issue needed to build a Ticket; the dates are the raw strings of Jira
+     */
+    public static final class Issue {
+        private final String key;
+        private final String created;
+        private final String resolutionDate;
+        private final List<String> releasedVersionDates;
+
+        private Issue(String key, String created, String resolutionDate, List<String> releasedVersionDates) {
+            this.key = key;
+            this.created = created;
+            this.resolutionDate = resolutionDate;
+            this.releasedVersionDates = releasedVersionDates;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getCreated() {
+            return created;
+        }
+
+        public String getResolutionDate() {
+            return resolutionDate;
+        }
+
+        public List<String> getReleasedVersionDates() {
+            return releasedVersionDates;
+        }
+    }
+
+    private JiraIssueParser() {
+    }
+
+    /**
+     * @return the {@code total} field of a search page, or -1 if it is missing
+     */
+    public static int readTotal(String page) {
+        JSONTokener tokener = new JSONTokener(new StringReader(page));
+        expect(tokener, '{');
+        for (String field = nextField(tokener); field != null; field = nextField(tokener)) {
+            if (field.equals("total")) {
+                return ((Number) tokener.nextValue()).intValue();
+            }
+            skipValue(tokener);
+        }
+        return -1;
+    }
+
+    /**
+     * @return the issues of a search page, in order; issues without key or dates are skipped
+     */
+    public static List<Issue> parseIssues(Reader page) {
+        List<Issue> issues = new ArrayList<>();
+        JSONTokener tokener = new JSONTokener(page);
+        expect(tokener, '{');
+        for (String field = nextField(tokener); field != null; field = nextField(tokener)) {
+            if (!field.equals("issues")) {
+                skipValue(tokener);
+                continue;
+            }
+            expect(tokener, '[');
+            for (boolean more = firstElement(tokener, ']'); more; more = nextElement(tokener, ']')) {
+                Issue issue = parseIssue(tokener);
+                if (issue != null) {
+                    issues.add(issue);
+                }
+            }
+        }
+        return issues;
+    }
+
+    private static Issue parseIssue(JSONTokener tokener) {
+        String key = null;
+        String created = null;
+        String resolutionDate = null;
+        List<String> releasedVersionDates = new ArrayList<>();
+
+        expect(tokener, '{');
+        for (String field = nextField(tokener); field != null; field = nextField(tokener)) {
+            if (field.equals("key")) {
+                key = stringValue(tokener);
+            } else if (field.equals("fields")) {
+                expect(tokener, '{');
+                for (String name = nextField(tokener); name != null; name = nextField(tokener)) {
+                    switch (name) {
+                        case "created" -> created = stringValue(tokener);
+                        case "resolutiondate" -> resolutionDate = stringValue(tokener);
+                        case "versions" -> parseVersions(tokener, releasedVersionDates);
+                        default -> skipValue(tokener);
+                    }
+                }
+            } else {
+                skipValue(tokener);
+            }
+        }
+        if (key == null || created == null || resolutionDate == null) {
+            return null;
+        }
+        return new Issue(key, created, resolutionDate, releasedVersionDates);
+    }
+
+    // le versioni sono poche e piccole: ognuna è letta come oggetto
+    private static void parseVersions(JSONTokener tokener, List<String> releasedVersionDates) {
+        Object value = tokener.nextValue();
+        if (!(value instanceof JSONArray versions)) {
+            return;
+        }
+        for (int i = 0; i < versions.length(); i++) {
+            JSONObject version = versions.optJSONObject(i);
+            if (version != null && version.optBoolean("released") && version.has("releaseDate")) {
+                releasedVersionDates.add(version.getString("releaseDate"));
+            }
+        }
+    }
+
+    private static String stringValue(JSONTokener tokener) {
+        Object value = tokener.nextValue();
+        return value instanceof String string ? string : null;
+    }
+
+    // legge il nome del prossimo campo e i due punti, null alla fine dell'oggetto
+    private static String nextField(JSONTokener tokener) {
+        char c = tokener.nextClean();
+        if (c == ',') {
+            c = tokener.nextClean();
+        }
+        if (c == '}') {
+            return null;
+        }
+        if (c != '"') {
+            throw tokener.syntaxError("Expected a field name");
+        }
+        String name = tokener.nextString('"');
+        expect(tokener, ':');
+        return name;
+    }
+
+    private static boolean firstElement(JSONTokener tokener, char end) {
+        if (tokener.nextClean() == end) {
+            return false;
+        }
+        tokener.back();
+        return true;
+    }
+
+    private static boolean nextElement(JSONTokener tokener, char end) {
+        char c = tokener.nextClean();
+        if (c == end) {
+            return false;
+        }
+        if (c != ',') {
+            throw tokener.syntaxError("Expected ',' or '" + end + "'");
+        }
+        return true;
+    }
+
+    private static void expect(JSONTokener tokener, char expected) {
+        if (tokener.nextClean() != expected) {
+            throw tokener.syntaxError("Expected '" + expected + "'");
+        }
+    }
+
+    /**
+     * Advances the tokener past the next JSON value without building it
+     */
+    private static void skipValue(JSONTokener tokener) {
+        char c = tokener.nextClean();
+        if (c != '{' && c != '[') {
+            tokener.back();
+            tokener.nextValue();
+            return;
+        }
+        int depth = 1;
+        while (depth > 0) {
+            char n = tokener.next();
+            if (n == 0) {
+                throw tokener.syntaxError("Unterminated JSON value");
+            } else if (n == '"') {
+                tokener.nextString('"');
+            } else if (n == '{' || n == '[') {
+                depth++;
+            } else if (n == '}' || n == ']') {
+                depth--;
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package project.controllers;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.JavaToken;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.TokenRange;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Tells which methods of a file were left untouched by a commit, comparing the version of the
+ * file in the commit with the one in its first parent.
+ * The methods are compared by a hash of their body tokens, without whitespace and comments, so
+ * reformatting a method does not change it. Results are memoized by pair of blob ids and the
+ * hashes by blob id: the same file version is parsed once, whichever commit or release asks for it.
+ * The service is not thread-safe.
+ */
+public class MethodChangeService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MethodChangeService.class);
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * Old and new version of a file; the zero id stands for a missing version
+     */
+    private static final class BlobPair {
+        private final ObjectId oldBlob;
+        private final ObjectId newBlob;
+
+        private BlobPair(ObjectId oldBlob, ObjectId newBlob) {
+            this.oldBlob = oldBlob.copy();
+            this.newBlob = newBlob.copy();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof BlobPair other && oldBlob.equals(other.oldBlob) && newBlob.equals(other.newBlob);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(oldBlob, newBlob);
+        }
+    }
+
+    private final Supplier<? extends Repository> repository;
+    private final JavaParser javaParser = new JavaParser();
+    private final Map<BlobPair, Set<String>> unchangedByPair = new HashMap<>();
+    // nome del metodo -> hash del corpo, per ogni blob già analizzato
+    private final Map<ObjectId, Map<String, Long>> bodyHashesByBlob = new HashMap<>();
+
+    public MethodChangeService(Supplier<? extends Repository> repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * For every path returns the names of the methods present in both versions with the same body.
+     * Any other name, including the names not declared in the file, counts as changed.
+     */
+    public Map<String, Set<String>> unchangedMethods(ObjectId commitId, List<String> paths) throws IOException {
+        Map<String, Set<String>> unchanged = new HashMap<>();
+        if (paths.isEmpty()) {
+            return unchanged;
+        }
+        try (ObjectReader reader = repository.get().newObjectReader();
+             RevWalk revWalk = new RevWalk(reader);
+             TreeWalk treeWalk = new TreeWalk(reader)) {
+            RevCommit commit = revWalk.parseCommit(commitId);
+            if (commit.getParentCount() > 0) {
+                treeWalk.addTree(revWalk.parseCommit(commit.getParent(0)).getTree());
+            } else {
+                treeWalk.addTree(new EmptyTreeIterator());
+            }
+            treeWalk.addTree(commit.getTree());
+            treeWalk.setRecursive(true);
+            treeWalk.setFilter(PathFilterGroup.createFromStrings(paths));
+
+            while (treeWalk.next()) {
+                BlobPair pair = new BlobPair(treeWalk.getObjectId(0), treeWalk.getObjectId(1));
+                Set<String> names = unchangedByPair.get(pair);
+                if (names == null) {
+                    names = compare(bodyHashes(reader, pair.oldBlob), bodyHashes(reader, pair.newBlob));
+                    unchangedByPair.put(pair, names);
+                }
+                unchanged.put(treeWalk.getPathString(), names);
+            }
+        }
+        return unchanged;
+    }
+
+    private static Set<String> compare(Map<String, Long> oldHashes, Map<String, Long> newHashes) {
+        Set<String> unchanged = new HashSet<>();
+        for (Map.Entry<String, Long> entry : oldHashes.entrySet()) {
+            if (entry.getValue().equals(newHashes.get(entry.getKey()))) {
+                unchanged.add(entry.getKey());
+            }
+        }
+        return Collections.unmodifiableSet(unchanged);
+    }
+
+    private Map<String, Long> bodyHashes(ObjectReader reader, ObjectId blobId) throws IOException {
+        if (ObjectId.zeroId().equals(blobId)) {
+            return Collections.emptyMap();
+        }
+        Map<String, Long> hashes = bodyHashesByBlob.get(blobId);
+        if (hashes == null) {
+            String source = new String(reader.open(blobId, Constants.OBJ_BLOB).getBytes(), StandardCharsets.UTF_8);
+            hashes = parseBodyHashes(source, blobId);
+            bodyHashesByBlob.put(blobId, hashes);
+        }
+        return hashes;
+    }
+
+    // come in precedenza, a parità di nome resta l'ultimo metodo dichiarato; un file non analizzabile non ha metodi
+    private Map<String, Long> parseBodyHashes(String source, ObjectId blobId) {
+        Map<String, Long> hashes = new HashMap<>();
+        ParseResult<CompilationUnit> result = javaParser.parse(source);
+        if (!result.isSuccessful() || result.getResult().isEmpty()) {
+            LOGGER.warn("Impossibile analizzare il blob {}: {}", blobId.name(), result.getProblems());
+            return hashes;
+        }
+        for (MethodDeclaration method : result.getResult().get().findAll(MethodDeclaration.class)) {
+            long hash = method.getBody().flatMap(Node::getTokenRange).map(MethodChangeService::hash).orElse(FNV_OFFSET);
+            hashes.put(method.getNameAsString(), hash);
+        }
+        return hashes;
+    }
+
+    // FNV-1a sui testi dei token, separati da uno zero; spazi e commenti sono ignorati
+    private static long hash(TokenRange tokens) {
+        long hash = FNV_OFFSET;
+        for (JavaToken token : tokens) {
+            if (token.getCategory().isWhitespaceOrComment()) {
+                continue;
+            }
+            String text = token.getText();
+            for (int i = 0; i < text.length(); i++) {
+                hash = (hash ^ text.charAt(i)) * FNV_PRIME;
+            }
+            hash = hash * FNV_PRIME;
+        }
+        return hash;
+    }
+}
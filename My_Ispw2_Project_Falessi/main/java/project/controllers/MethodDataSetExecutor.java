@@ -1,10 +1,11 @@
 package project.controllers;
 
 import org.eclipse.jgit.api.errors.GitAPIException;
-import org.eclipse.jgit.revwalk.RevCommit;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import project.models.CommitTable;
 import project.models.DataSetType;
 import project.models.MethodInstance;
 import project.models.Release;
@@ -49,7 +50,9 @@ public class MethodDataSetExecutor {
         List<Release> releaseList = jiraInfoRetrieve.retrieveReleases();
         LOGGER.info("Retrieved " + releaseList.size() + " releases");
 
-        List<RevCommit> allCommits = gitHubInfoRetrieve.getAllCommits();
+        // le chiavi dei ticket sono estratte dai messaggi durante la lettura del log
+        TicketKeyExtractor keyExtractor = new TicketKeyExtractor(List.of(this.currentProject.toUpperCase()));
+        CommitTable allCommits = gitHubInfoRetrieve.getAllCommits(keyExtractor);
         LOGGER.info("Retrieved " + allCommits.size() + " commits");
 
 
@@ -65,14 +68,10 @@ public class MethodDataSetExecutor {
         // Fase 4: Recupero dei ticket e associazione commit-ticket
         List<Ticket> allTickets = jiraInfoRetrieve.retrieveTickets(releaseList);
         LOGGER.info("Retrieved {} tockets" , allTickets.size());
-        getAllClassesByRelease(releaseList);
+        // Fase 5 e 6: classi e metodi di ogni release, estratti in un solo passaggio parallelo
+        getAllClassesAndMethodsByRelease(releaseList);
 
         LOGGER.info("Retrieved {} classes from all the release " , releaseList.get(releaseList.size()-1).getReleaseAllClass().size() );
-
-
-
-        // Fase 6: Estrazione metodi per ogni release<--------DA CApire dove posizionare
-        getAllMethodsByRelease(releaseList);
         LOGGER.info("Retrieved {} methods from all the class " , releaseList.get(releaseList.size()-1).getReleaseAllMethods().size() );
         associateCommitsToTicket(allCommits, allTickets);
 
@@ -118,17 +117,19 @@ public class MethodDataSetExecutor {
 
         // Initialize the metrics calculator with only the needed commits and the current project name
         this.metricsCalculator = new MetricsCalculator(this.gitHubInfoRetrieve, this.currentProject);
-        metricsCalculator.calculateAll(avaiableTrainingRelease);
+        try (MetricsCalculator calculator = metricsCalculator) {
+            calculator.calculateAll(avaiableTrainingRelease);
 
 
-        // Fase 8: Scrittura dei file di training
-        for (int i = 1; i < avaiableTrainingRelease.size(); i++) {
-            // reverse calculation for have first all the commit processed and elaborated
-            Release release= avaiableTrainingRelease.get(avaiableTrainingRelease.size()-i);
-            writeReleaseTrainFile(release, releaseList);
-        }
+            // Fase 8: Scrittura dei file di training
+            for (int i = 1; i < avaiableTrainingRelease.size(); i++) {
+                // reverse calculation for have first all the commit processed and elaborated
+                Release release= avaiableTrainingRelease.get(avaiableTrainingRelease.size()-i);
+                writeReleaseTrainFile(release, releaseList);
+            }
 
-        writeTestFiles(releaseList,avaiableTrainingRelease);
+            writeTestFiles(releaseList,avaiableTrainingRelease);
+        }
 
 
     }
@@ -275,42 +276,19 @@ public class MethodDataSetExecutor {
 
 
 
-    private void getAllMethodsByRelease(List<Release> releaseList) throws IOException {
-        for (Release release : releaseList) {
-            gitHubInfoRetrieve.getMethodInstancesOfCommit(release);
-        }
-        Release last = releaseList.get(releaseList.size() - 1);
-        last.setReleaseAllMethods(releaseList.get(releaseList.size() - 1).getReleaseAllMethods());
-    }
-
     //method that, given a list of commits and a list of tickets, assigns to each ticket the commits that are related to that ticket
     //i.e., the commits that mention the tickets in their comment
-    private void associateCommitsToTicket(List<RevCommit> allCommits, List<Ticket> allTickets) {
+    private void associateCommitsToTicket(CommitTable allCommits, List<Ticket> allTickets) {
         LOGGER.info("\n\n********************BEGIN METHOD-LEVEL COMMIT ASSOCIATION********************");
 
-        for (RevCommit commit : allCommits) {
-            String comment = commit.getFullMessage();
-            for (Ticket ticket : allTickets) {
-
-                if ((comment.contains(ticket.getKey() + ":") || comment.contains(ticket.getKey() + "]")
-                        || comment.contains(ticket.getKey() + " "))
-                        && !ticket.getAssociatedCommits().contains(commit)) {
-
-                    ticket.addAssociatedCommit(commit);
-
-                }
-            }
-        }
+        TicketKeyExtractor.associate(allCommits, allTickets);
         out.println("\n********************END ASSOCIATION********************");
     }
 
-    //method that sets the list of files present in the release
-    private void getAllClassesByRelease(List<Release> releaseList) throws IOException {
-        int len = releaseList.size();
-        for (int i = 0; i < len; i++) {
-            gitHubInfoRetrieve.getClassFilesOfCommit(releaseList.get(i));
-        }
-        releaseList.get(releaseList.size()-1).setReleaseAllClass(releaseList.get(len-1).getReleaseAllClass());
+    //method that sets the list of files and methods present in the release
+    private void getAllClassesAndMethodsByRelease(List<Release> releaseList) throws IOException {
+        new ReleaseInventoryBuilder(gitHubInfoRetrieve.getRepository(), gitHubInfoRetrieve.getClassContents(),
+                ConstantSize.INVENTORY_THREADS).build(releaseList);
     }
 
     //method for calculating the proportion in case there are not enough tickets
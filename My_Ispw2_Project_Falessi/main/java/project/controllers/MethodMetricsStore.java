@@ -0,0 +1,310 @@
+package project.controllers;
+
+import project.models.MethodInstance;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Off-heap store of the method metrics of every analyzed commit, used in place of a
+ * {@code HashMap<String, Map<String, MethodInstance>>}.
+ * Every method is a row: the metrics are primitive int columns, each one in its own
+ * memory-mapped file, and the names are ids in a dictionary of distinct strings.
+ * Only the dictionary and the commit -> rows index stay on the heap.
+ * {@link #get(Object)} is a read view: it builds new MethodInstance objects from the rows of the commit.
+ * The column files live in a temporary directory removed by {@link #close()}, or at JVM exit
+ * if the store is never closed.
+ */
+public class MethodMetricsStore extends AbstractMap<String, Map<String, MethodInstance>> implements Closeable {
+    private static final int COL_KEY = 0;
+    private static final int COL_FILE_PATH = 1;
+    private static final int COL_METHOD_NAME = 2;
+    private static final int COL_CLASS_NAME = 3;
+    private static final int COL_LOC = 4;
+    private static final int COL_WMC = 5;
+    private static final int COL_ASSIGNMENTS = 6;
+    private static final int COL_MATH_OPERATIONS = 7;
+    private static final int COL_TRY_CATCH = 8;
+    private static final int COL_RETURN = 9;
+    private static final int COL_FANIN = 10;
+    private static final int COL_FANOUT = 11;
+    private static final int COL_AGE = 12;
+    private static final int COL_N_AUTH = 13;
+    private static final int COL_NR = 14;
+    private static final int COL_N_SMELLS = 15;
+    private static final int COL_BUGGY = 16;
+    private static final int COLUMNS = 17;
+
+    // rows mapped at a time by every column file (4 MB per column segment)
+    private static final int SEGMENT_ROWS = 1 << 20;
+
+    private final Path directory;
+    private final FileChannel[] channels = new FileChannel[COLUMNS];
+    // segments.get(i)[column] is the i-th mapped window of the column
+    private final List<IntBuffer[]> segments = new ArrayList<>();
+
+    private final List<String> dictionary = new ArrayList<>();
+    private final Map<String, Integer> dictionaryIds = new HashMap<>();
+    // commit hash -> {first row, number of rows}
+    private final Map<String, int[]> commits = new LinkedHashMap<>();
+    private int rows;
+    // rimuove i file se lo store non viene chiuso prima dell'uscita
+    private final Thread cleanupHook;
+    private boolean closed;
+
+    public MethodMetricsStore() {
+        try {
+            this.directory = Files.createTempDirectory("method_metrics");
+        } catch (IOException e) {
+            throw new ProcessingInterruptedException("Impossibile creare lo store delle metriche dei metodi", e);
+        }
+        this.cleanupHook = new Thread(this::release, "method-metrics-cleanup");
+        Runtime.getRuntime().addShutdownHook(cleanupHook);
+        try {
+            for (int column = 0; column < COLUMNS; column++) {
+                Path columnFile = directory.resolve("column_" + column + ".bin");
+                channels[column] = FileChannel.open(columnFile, StandardOpenOption.CREATE_NEW,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+            }
+        } catch (IOException e) {
+            close();
+            throw new ProcessingInterruptedException("Impossibile creare lo store delle metriche dei metodi", e);
+        }
+    }
+
+    /**
+     * Appends the methods of a commit. A commit already stored is replaced by the new rows.
+     * The values are copied into the columns: changing a MethodInstance after the put
+     * (for example with setBuggy) does not change the stored row, the commit must be put again.
+     *
+     * @return always null: the previous value is not materialized
+     */
+    @Override
+    public synchronized Map<String, MethodInstance> put(String commitHash, Map<String, MethodInstance> methods) {
+        int firstRow = rows;
+        for (Map.Entry<String, MethodInstance> entry : methods.entrySet()) {
+            MethodInstance method = entry.getValue();
+            int row = rows;
+            set(row, COL_KEY, encode(entry.getKey()));
+            set(row, COL_FILE_PATH, encode(method.getFilePath()));
+            set(row, COL_METHOD_NAME, encode(method.getMethodName()));
+            set(row, COL_CLASS_NAME, encode(method.getClassName()));
+            set(row, COL_LOC, method.getLoc());
+            set(row, COL_WMC, method.getWmc());
+            set(row, COL_ASSIGNMENTS, method.getQtyAssigment());
+            set(row, COL_MATH_OPERATIONS, method.getQtyMathOperations());
+            set(row, COL_TRY_CATCH, method.getQtyTryCatch());
+            set(row, COL_RETURN, method.getQtyReturn());
+            set(row, COL_FANIN, method.getFanin());
+            set(row, COL_FANOUT, method.getFanout());
+            set(row, COL_AGE, method.getAge());
+            set(row, COL_N_AUTH, method.getnAuth());
+            set(row, COL_NR, method.getNr());
+            set(row, COL_N_SMELLS, method.getnSmells());
+            set(row, COL_BUGGY, method.isBuggy() ? 1 : 0);
+            rows++;
+        }
+        commits.put(commitHash, new int[]{firstRow, rows - firstRow});
+        return null;
+    }
+
+    @Override
+    public synchronized Map<String, MethodInstance> get(Object commitHash) {
+        int[] range = commits.get(commitHash);
+        return range == null ? null : read(range);
+    }
+
+    /**
+     * Reads a single method of a commit, or null if it is not stored
+     */
+    public synchronized MethodInstance get(String commitHash, String methodKey) {
+        int[] range = commits.get(commitHash);
+        Integer keyId = dictionaryIds.get(methodKey);
+        if (range == null || keyId == null) {
+            return null;
+        }
+        MethodInstance found = null;
+        for (int row = range[0]; row < range[0] + range[1]; row++) {
+            // a key repeated in the same commit keeps the last value, as in a map
+            if (get(row, COL_KEY) == keyId) {
+                found = readRow(row);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public synchronized boolean containsKey(Object commitHash) {
+        return commits.containsKey(commitHash);
+    }
+
+    @Override
+    public synchronized int size() {
+        return commits.size();
+    }
+
+    /**
+     * @return a snapshot of the stored commit hashes, without reading any row
+     */
+    @Override
+    public synchronized Set<String> keySet() {
+        return new LinkedHashSet<>(commits.keySet());
+    }
+
+    @Override
+    public Set<Map.Entry<String, Map<String, MethodInstance>>> entrySet() {
+        Set<String> commitHashes = keySet();
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Map.Entry<String, Map<String, MethodInstance>>> iterator() {
+                Iterator<String> hashes = commitHashes.iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return hashes.hasNext();
+                    }
+
+                    @Override
+                    public Map.Entry<String, Map<String, MethodInstance>> next() {
+                        String commitHash = hashes.next();
+                        return new SimpleImmutableEntry<>(commitHash, get(commitHash));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return commitHashes.size();
+            }
+        };
+    }
+
+    /**
+     * Closes the column files and deletes the directory; the store cannot be used afterwards
+     */
+    @Override
+    public void close() {
+        release();
+        try {
+            Runtime.getRuntime().removeShutdownHook(cleanupHook);
+        } catch (IllegalStateException e) {
+            // la JVM è già in fase di uscita: l'hook è in esecuzione
+        }
+    }
+
+    private synchronized void release() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        segments.clear();
+        commits.clear();
+        rows = 0;
+        for (FileChannel channel : channels) {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    // il file resta nella directory, rimossa sotto se possibile
+                }
+            }
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            // su alcuni sistemi un file ancora mappato non può essere cancellato: resta nella cartella temporanea
+            directory.toFile().deleteOnExit();
+        }
+    }
+
+    private Map<String, MethodInstance> read(int[] range) {
+        Map<String, MethodInstance> methods = new HashMap<>(range[1] * 2);
+        for (int row = range[0]; row < range[0] + range[1]; row++) {
+            methods.put(decode(get(row, COL_KEY)), readRow(row));
+        }
+        return methods;
+    }
+
+    private MethodInstance readRow(int row) {
+        MethodInstance method = new MethodInstance();
+        method.setFilePath(decode(get(row, COL_FILE_PATH)));
+        method.setMethodName(decode(get(row, COL_METHOD_NAME)));
+        method.setClassPath(decode(get(row, COL_CLASS_NAME)));
+        method.setLoc(get(row, COL_LOC));
+        method.setWmc(get(row, COL_WMC));
+        method.setQtyAssigment(get(row, COL_ASSIGNMENTS));
+        method.setQtyMathOperations(get(row, COL_MATH_OPERATIONS));
+        method.setQtyTryCatch(get(row, COL_TRY_CATCH));
+        method.setQtyReturn(get(row, COL_RETURN));
+        method.setFanin(get(row, COL_FANIN));
+        method.setFanout(get(row, COL_FANOUT));
+        method.setAge(get(row, COL_AGE));
+        method.setnAuth(get(row, COL_N_AUTH));
+        method.setNr(get(row, COL_NR));
+        method.setnSmells(get(row, COL_N_SMELLS));
+        method.setBuggy(get(row, COL_BUGGY) != 0);
+        return method;
+    }
+
+    // -1 stands for a null string
+    private int encode(String value) {
+        if (value == null) {
+            return -1;
+        }
+        return dictionaryIds.computeIfAbsent(value, v -> {
+            dictionary.add(v);
+            return dictionary.size() - 1;
+        });
+    }
+
+    private String decode(int id) {
+        return id < 0 ? null : dictionary.get(id);
+    }
+
+    private int get(int row, int column) {
+        return segments.get(row / SEGMENT_ROWS)[column].get(row % SEGMENT_ROWS);
+    }
+
+    private void set(int row, int column, int value) {
+        int segment = row / SEGMENT_ROWS;
+        while (segments.size() <= segment) {
+            mapSegment(segments.size());
+        }
+        segments.get(segment)[column].put(row % SEGMENT_ROWS, value);
+    }
+
+    private void mapSegment(int segment) {
+        long segmentBytes = (long) SEGMENT_ROWS * Integer.BYTES;
+        IntBuffer[] columns = new IntBuffer[COLUMNS];
+        try {
+            for (int column = 0; column < COLUMNS; column++) {
+                columns[column] = channels[column]
+                        .map(FileChannel.MapMode.READ_WRITE, segment * segmentBytes, segmentBytes)
+                        .asIntBuffer();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Impossibile mappare il segmento " + segment + " in " + directory, e);
+        }
+        segments.add(columns);
+    }
+}
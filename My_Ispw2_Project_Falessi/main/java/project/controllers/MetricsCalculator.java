@@ -1,15 +1,12 @@
 
 package project.controllers;
 
-import com.github.javaparser.ParseProblemException;
-import com.github.javaparser.StaticJavaParser;
-import com.github.javaparser.ast.CompilationUnit;
-import com.github.javaparser.ast.body.MethodDeclaration;
 import com.github.mauricioaniche.ck.CK;
+import com.github.mauricioaniche.ck.CKClassResult;
 import com.github.mauricioaniche.ck.CKMethodResult;
 import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.Repository;
-import org.eclipse.jgit.revwalk.RevCommit;
 import org.slf4j.LoggerFactory;
 import project.models.*;
 
@@ -21,6 +18,7 @@ import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToIntFunction;
 
 import static project.models.MethodInstance.ckSignature;
 import project.utils.ConstantSize;
@@ -28,7 +26,7 @@ import project.utils.ConstantsWindowsFormat;
 
 import org.slf4j.Logger;
 
-public class MetricsCalculator {
+public class MetricsCalculator implements Closeable {
 
     private final Logger LOGGER = LoggerFactory.getLogger(MetricsCalculator.class);
     private final Path tempDirPath = Paths.get(System.getProperty("java.io.tmpdir"), "ck_analysis");
@@ -37,7 +35,14 @@ public class MetricsCalculator {
     private String projectName;
     private RepositoryManager repositoryManager;
     private boolean resultsChanged;
-    private Map <String,Map<String,MethodInstance>> resultCommitsMethods=new HashMap<>();
+    // metriche di tutti i commit analizzati, tenute fuori heap in colonne mappate in memoria
+    private final MethodMetricsStore resultCommitsMethods=new MethodMetricsStore();
+    private final BlobMetricsCache blobMetricsCache;
+    private final DiffIndex diffIndex;
+    // metodi invariati per coppia di blob, usato dall'assegnazione della buggyness
+    private final MethodChangeService methodChangeService;
+    // serializza i checkout sul worktree condiviso in modalità SHARED_WORKTREE
+    private final Object worktreeLock = new Object();
 
 
     /**
@@ -53,8 +58,14 @@ public class MetricsCalculator {
         // Initialize the repository manager
         this.repositoryManager = new RepositoryManager(gitHubInfoRetrieve);
         this.resultsChanged=false;
-        // Load the commit cache using the optimized method
-        Caching.loadCommitCache(resultCommitsMethods, null,projectName);
+        // In modalità lazy i commit in cache vengono letti solo quando una release li richiede
+        if (!ConstantSize.LAZY_COMMIT_CACHE) {
+            Caching.loadCommitCache(resultCommitsMethods, null,projectName);
+        }
+        // Metriche per versione di file, condivise da tutti i commit che contengono lo stesso blob
+        this.blobMetricsCache = new BlobMetricsCache(projectName);
+        this.diffIndex = new DiffIndex(projectName);
+        this.methodChangeService = new MethodChangeService(gitHubInfoRetrieve::getRepository);
     }
     /**
      * Data class to hold release processing information
@@ -62,28 +73,32 @@ public class MetricsCalculator {
     public  class ReleaseData {
         Release release;
         ConcurrentMap<String, MethodInstance> releaseResults;
-        Map<RevCommit, Release> mapCommitRelease;
-        List<RevCommit> releaseCommits;
-        Map<String, RevCommit> commitsAnalyzed;
-        Set<String> commitHashesToProcess;
-        Map<String, RevCommit> commitsByHash;
+        // release di ogni commit, indicizzata con l'indice del commit nella CommitTable
+        Release[] commitReleases;
+        List<CommitDescriptor> releaseCommits;
+        // indici dei commit già analizzati o presi dalla cache
+        BitSet commitsAnalyzed;
+        List<CommitDescriptor> commitsToProcess;
         List<Ticket> releaseTickets;
         DataSetType dataSetType;
     }
 
 
       void getCommitsInCache(ReleaseData releaseData ) {
-        for (RevCommit commit : releaseData.releaseCommits) {
-            String commitHash = commit.getId().getName();
-            releaseData.commitsByHash.put(commitHash, commit);
-            if (!resultCommitsMethods.containsKey(commitHash)) {
-                releaseData.commitHashesToProcess.add(commitHash);
+        for (CommitDescriptor commit : releaseData.releaseCommits) {
+            String commitHash = commit.getName();
+            Map<String, MethodInstance> commitMetrics = resultCommitsMethods.get(commitHash);
+            if (commitMetrics == null && ConstantSize.LAZY_COMMIT_CACHE) {
+                // Legge dal disco solo il record di questo commit, senza trattenerlo dopo la release
+                commitMetrics = Caching.loadCommit(commitHash, projectName);
+            }
+            if (commitMetrics == null) {
+                releaseData.commitsToProcess.add(commit);
             } else {
                 // This commit is already in cache, use it directly
-                Map<String, MethodInstance> commitMetrics = resultCommitsMethods.get(commitHash);
                 // Update the release for each method
                 for (MethodInstance result : commitMetrics.values()) {
-                    Release cur_release = releaseData.mapCommitRelease.get(commit);
+                    Release cur_release = releaseData.commitReleases[commit.getIndex()];
                     if (cur_release != null) {
                         result.setRelease(cur_release);
                     } else {
@@ -91,7 +106,7 @@ public class MetricsCalculator {
                     }
                 }
                 releaseData.releaseResults.putAll(commitMetrics);
-                releaseData.commitsAnalyzed.put(commitHash, commit);
+                releaseData.commitsAnalyzed.set(commit.getIndex());
                 resultsChanged=true;
             }
         }
@@ -99,207 +114,85 @@ public class MetricsCalculator {
 
     void processCommits(ReleaseData releaseData) throws IOException, ExecutionException, InterruptedException {
         System.out.println("processing the other commits ");
-        // Crea un lock per sincronizzare l'accesso al repository
-        Object threadLock = new Object();
-
-        // Separa l'ultimo commit per elaborazione sequenziale
         AtomicInteger countThread = new AtomicInteger();
 
-        // Contatore per gli errori di batch
-        AtomicInteger batchErrorCount = new AtomicInteger(0);
-
-        // Limita il numero di thread in base alla memoria disponibile e ai core
+        // Limita il numero di thread di analisi in base alla memoria disponibile e ai core
         int availableProcessors = Runtime.getRuntime().availableProcessors();
-        // Usa meno thread se la memoria è limitata (< 2GB)
+        // Usa meno thread se la memoria è limitata (< 1GB)
         long maxMemory = Runtime.getRuntime().maxMemory() / (1024 * 1024);
-        int memoryBasedThreads = (int) Math.max(1, Math.min(maxMemory / 512, ConstantSize.NUM_THREADS));
+        int memoryBasedThreads = (int) Math.max(1, Math.min(maxMemory / ConstantSize.MEMORY_PER_THREAD_MB, ConstantSize.NUM_THREADS));
         int numThreads = Math.min(availableProcessors, memoryBasedThreads);
 
-        LOGGER.info("Memoria massima disponibile: {} MB, Numero di thread: {}", maxMemory, numThreads);
-
-        // Dividi i commit in batch più piccoli per ridurre il consumo di memoria
-        List<String> commitHashList = new ArrayList<>(releaseData.commitHashesToProcess);
-        int batchSize = Math.min(100, commitHashList.size()); // Processa al massimo 100 commit alla volta
-
-        // Crea il backup iniziale
-        repositoryManager.backupRepository();
-
-        // Indice del batch corrente
-        int currentBatchIndex = 0;
-
-        // Flag per indicare se è necessario riavviare l'elaborazione dopo un reset
-        boolean restartProcessing = false;
-
-        // Thread pool finale che verrà utilizzato anche per processare le classi rimanenti in cache
-        ForkJoinPool finalThreadPool = null;
-
-        // Processa i commit in batch con possibilità di riavvio
-        while (currentBatchIndex < commitHashList.size()) {
-            // Reset del flag di riavvio
-            restartProcessing = false;
-
-            // Crea un nuovo thread pool per ogni ciclo di elaborazione
-            // Questo permette di riavviare completamente l'elaborazione dopo un reset
-            ForkJoinPool customThreadPool = new ForkJoinPool(numThreads);
-
-            // Aggiorna il thread pool finale
-            finalThreadPool = customThreadPool;
-
-            try {
-                // Calcola l'indice di fine per il batch corrente
-                int endIndex = Math.min(currentBatchIndex + batchSize, commitHashList.size());
-                List<String> batchCommits = commitHashList.subList(currentBatchIndex, endIndex);
-
-                LOGGER.info("Elaborazione batch di commit {}/{} (dimensione: {})", 
-                        (currentBatchIndex/batchSize) + 1, 
-                        (int) Math.ceil(commitHashList.size() / (double) batchSize),
-                        batchCommits.size());
-
-                // Contatore per gli errori in questo batch specifico
-                AtomicInteger currentBatchErrors = new AtomicInteger(0);
-
-                try {
-                    customThreadPool.submit(() ->
-                            batchCommits.parallelStream().forEach(commitHash -> {
-                                try {
-                                    RevCommit commit = releaseData.commitsByHash.get(commitHash);
-                                    Path commitTempDir = tempDirPath.resolve(releaseData.release.getName() + "_" + commitHash);
-                                    releaseData.commitsAnalyzed.put(commitHash, commit);
-
-                                    // Sincronizza l'accesso al repository Git
-                                    synchronized (threadLock) {
-                                        // Checkout del commit appartenente alla release
-                                        repositoryManager.checkoutRelease(commit, commitTempDir);
-
-                                    }
-
-                                    countThread.getAndIncrement();
-
-                                    Map<String, MethodInstance> commitMetrics = calculateCKMetrics(commitTempDir, releaseData.release);
-                                    for (MethodInstance result : commitMetrics.values()) {
-                                        Release curRelease = releaseData.mapCommitRelease.get(commit);
-                                        if (curRelease != null) {
-                                            result.setRelease(curRelease);
-                                        } else {
-                                            result.setRelease(releaseData.release);
-                                        }
-                                    }
-
-                                    resultCommitsMethods.put(commitHash, commitMetrics);
-                                    // Aggiorna i risultati in modo thread-safe
-                                    releaseData.releaseResults.putAll(commitMetrics);
-
-                                    synchronized (threadLock) {
-                                        resultsChanged=true;
-                                        outData(countThread.get(), releaseData);
-                                    }
-
-                                    // Pulisci la directory temporanea del commit
-                                    repositoryManager.cleanupTempDirectory(commitTempDir);
-
-                                    // Suggerisci al GC di liberare memoria non utilizzata
-                                    if (countThread.get() % 10 == 0) {
-                                        System.gc();
-                                    }
-                                } catch (OutOfMemoryError e) {
-                                    LOGGER.error("Memoria insufficiente durante l'elaborazione del commit: {}", commitHash, e);
-                                    // Incrementa i contatori di errore
-                                    currentBatchErrors.incrementAndGet();
-                                    batchErrorCount.incrementAndGet();
-                                    // Tenta di liberare memoria
-                                    System.gc();
-                                } catch (Exception e) {
-                                    LOGGER.error("Errore durante l'elaborazione del commit: {}", commitHash, e);
-                                    // Incrementa i contatori di errore
-                                    currentBatchErrors.incrementAndGet();
-                                    batchErrorCount.incrementAndGet();
-                                }
-                            })
-                        ).get(); // Attendi il completamento
-                } catch (Exception e) {
-                    LOGGER.error("Errore durante l'elaborazione del batch: {}", e.getMessage(), e);
-                    // Incrementa il contatore degli errori di batch
-                    batchErrorCount.incrementAndGet();
-
-                    // Se ci sono troppi errori, esegui un reset completo
-                    if (batchErrorCount.get() >= 3) { // Soglia fissa per errori di batch
-                        LOGGER.warn("Troppi errori di batch ({}). Esecuzione reset completo...", batchErrorCount.get());
+        int queueSize = ConstantSize.PIPELINE_QUEUE_SIZE;
+        // commit in volo (letti, in coda o in analisi): il limite dipende dalla memoria in entrambe le modalità
+        int maxInFlight = numThreads + queueSize;
+        int analyzerThreads = numThreads;
+        if (WorkerExecutors.useVirtualThreads()) {
+            // un analyzer fermo sull'I/O non occupa un thread di piattaforma: ogni commit in volo può avere il suo,
+            // il parsing resta limitato dai permessi CPU
+            analyzerThreads = Math.min(ConstantSize.VIRTUAL_THREAD_ANALYZERS, maxInFlight);
+        }
 
-                        // Chiudi il thread pool corrente
-                        customThreadPool.shutdown();
+        LOGGER.info("Memoria massima disponibile: {} MB, Numero di thread di analisi: {}, commit in volo: {}",
+                maxMemory, analyzerThreads, maxInFlight);
 
-                        // Esegui il reset completo
-                        restartProcessing = handleProcessingError(releaseData, true);
 
-                        if (restartProcessing) {
-                            // Reset del contatore degli errori di batch
-                            batchErrorCount.set(0);
+        // Crea lo snapshot iniziale del repository
+        repositoryManager.backupRepository();
 
-                            // Interrompi l'elaborazione corrente per riavviare
-                            break;
+        // Lettura dei commit -> analisi in parallelo -> un solo thread che unisce e salva i risultati.
+        // Le code limitate rallentano gli stage più veloci al posto di sleep e GC forzati.
+        // Il controller riduce i commit in volo (letti, in coda o in analisi) quando heap e GC sono sotto pressione
+        // e li rialza quando c'è margine: il permesso è preso dalla lettura e restituito dopo l'analisi
+        CommitPipeline<CommitDescriptor, CommitSnapshot, Map<String, MethodInstance>> pipeline = new CommitPipeline<>(
+                ConstantSize.PIPELINE_READER_THREADS, analyzerThreads, queueSize);
+        int failedCommits;
+        try (ConcurrencyController concurrencyController = new ConcurrencyController(maxInFlight)) {
+            failedCommits = pipeline.run(releaseData.commitsToProcess,
+                    commit -> readSnapshot(commit, concurrencyController),
+                    snapshot -> {
+                        try {
+                            return analyzeSnapshot(snapshot, releaseData.release);
+                        } finally {
+                            concurrencyController.release();
                         }
-                    }
-                }
-
-                // Se ci sono stati molti errori in questo batch, considera un reset
-                if (currentBatchErrors.get() > batchSize / 2) {
-                    LOGGER.warn("Molti errori nel batch corrente ({}/{}). Valutazione reset...", 
-                            currentBatchErrors.get(), batchSize);
-
-                    // Chiudi il thread pool corrente
-                    customThreadPool.shutdown();
-
-                    // Esegui il reset completo
-                    restartProcessing = handleProcessingError(releaseData, true);
-
-                    if (restartProcessing) {
-                        // Reset del contatore degli errori di batch
-                        batchErrorCount.set(0);
-
-                        // Interrompi l'elaborazione corrente per riavviare
-                        break;
-                    }
-                }
+                    },
+                    (commit, commitMetrics) -> storeCommitResults(releaseData, commit, commitMetrics, countThread.incrementAndGet()));
+        } finally {
+            // le copie di lavoro del pool servono solo ai commit della release
+            repositoryManager.closeWorktreePool();
+        }
 
-                // Salva lo stato intermedio dopo ogni batch
-                Caching.saveCommitCache(resultCommitsMethods, projectName);
+        if (failedCommits > 0) {
+            LOGGER.warn("{} commit della release {} non sono stati elaborati", failedCommits, releaseData.release.getName());
+        }
 
-                // Suggerisci al GC di liberare memoria dopo ogni batch
-                System.gc();
+        // Salva la cache
+        Caching.saveCommitCache(resultCommitsMethods, projectName);
+        blobMetricsCache.save();
 
-                // Breve pausa per permettere al sistema di stabilizzarsi
-                Thread.sleep(1000);
+        // Ripristina il repository
+        repositoryManager.restoreFromBackup();
 
-                // Passa al batch successivo
-                currentBatchIndex += batchSize;
-            } finally {
-                // Assicurati che il thread pool venga chiuso
-                customThreadPool.shutdown();
-            }
-        }
+        // Assegna la buggyness e scrive i risultati completi
+        assignBuggyness(releaseData);
+        ClassWriter.writeResultsToFile(releaseData.release, projectName, releaseData.releaseResults, releaseData.dataSetType);
+    }
 
-        // Se è stato richiesto un riavvio, richiama ricorsivamente questo metodo
-        if (restartProcessing) {
-            LOGGER.info("Riavvio dell'elaborazione dopo il reset completo...");
-            // Rimuovi i commit già elaborati dalla lista da processare
-            releaseData.commitHashesToProcess.removeAll(releaseData.commitsAnalyzed.keySet());
-            // Richiama ricorsivamente il metodo per elaborare i commit rimanenti
-            processCommits(releaseData);
-            return;
+    /**
+     * Stage di scrittura della pipeline: è l'unico thread che aggiorna i risultati della release e le cache
+     */
+    private void storeCommitResults(ReleaseData releaseData, CommitDescriptor commit, Map<String, MethodInstance> commitMetrics, int count) {
+        Release curRelease = releaseData.commitReleases[commit.getIndex()];
+        for (MethodInstance result : commitMetrics.values()) {
+            result.setRelease(curRelease != null ? curRelease : releaseData.release);
         }
 
-        // Completamento normale dell'elaborazione
-        // Usa lo stesso thread pool per processare le classi rimanenti in cache
-        if (finalThreadPool != null) {
-            processRemainingClassesInCache(releaseData, finalThreadPool);
-        } else {
-            // Fallback nel caso in cui il thread pool non sia stato creato
-            LOGGER.warn("Thread pool non disponibile, elaborazione sequenziale");
-            Caching.saveCommitCache(resultCommitsMethods, projectName);
-            repositoryManager.restoreFromBackup();
-            assignBuggyness(releaseData);
-            ClassWriter.writeResultsToFile(releaseData.release, projectName, releaseData.releaseResults, releaseData.dataSetType);
-        }
+        resultCommitsMethods.put(commit.getName(), commitMetrics);
+        releaseData.releaseResults.putAll(commitMetrics);
+        releaseData.commitsAnalyzed.set(commit.getIndex());
+        resultsChanged = true;
+        outData(count, releaseData);
     }
 
     // Flag per indicare se è in corso un reset completo
@@ -375,46 +268,10 @@ public class MetricsCalculator {
         return handleProcessingError(releaseData, false);
     }
 
-    /**
-     * Processa le classi rimanenti in cache utilizzando lo stesso thread pool
-     * 
-     * @param releaseData I dati della release in elaborazione
-     * @param threadPool Il thread pool da utilizzare per l'elaborazione
-     */
-    private void processRemainingClassesInCache(ReleaseData releaseData, ForkJoinPool threadPool) {
-        try {
-            // Utilizza il thread pool fornito per elaborare le classi rimanenti in cache
-            threadPool.submit(() -> {
-                try {
-                    // Salva la cache
-                    Caching.saveCommitCache(resultCommitsMethods, projectName);
-
-                    // Ripristina il repository
-                    repositoryManager.restoreFromBackup();
-
-                    // Assegna la buggyness
-                    assignBuggyness(releaseData);
-
-                    // Notifica con i risultati completi
-                    ClassWriter.writeResultsToFile(releaseData.release, projectName, releaseData.releaseResults, releaseData.dataSetType);
-
-                    LOGGER.info("Elaborazione delle classi rimanenti in cache completata con successo");
-                } catch (Exception e) {
-                    LOGGER.error("Errore durante l'elaborazione delle classi rimanenti in cache: {}", e.getMessage(), e);
-                }
-            }).get(); // Attendi il completamento
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            LOGGER.error("Elaborazione interrotta per le classi rimanenti in cache", e);
-        } catch (ExecutionException e) {
-            LOGGER.error("Errore durante l'esecuzione dell'elaborazione delle classi rimanenti in cache: {}", e.getMessage(), e);
-        }
-    }
-
     private void outData(int log, ReleaseData releaseData) {
         if ((log % ConstantSize.FREQUENCY_LOG) == 0) {
-            int totalCommits = releaseData.releaseCommits.size() - releaseData.commitsAnalyzed.size();
-            int processedCommits = releaseData.commitsAnalyzed.size();
+            int processedCommits = releaseData.commitsAnalyzed.cardinality();
+            int totalCommits = releaseData.releaseCommits.size() - processedCommits;
 
             LOGGER.info("\n\n  Thread {} in corso... commits analyzed {}  commits to process {}) \n\n",
                     log,
@@ -423,6 +280,7 @@ public class MetricsCalculator {
         }
         if ((log % ConstantSize.FREQUENCY_WRITE_CACHE) == 0) {
             Caching.saveCommitCache(resultCommitsMethods, projectName);
+            blobMetricsCache.save();
         }
         if ((log % ConstantSize.FREQUENCY_WRITE_CSV) == 0  && releaseData.dataSetType.equals(DataSetType.TRAINING)) {
             // Calculate buggyness for partial results
@@ -447,36 +305,42 @@ public class MetricsCalculator {
         LOGGER.info((" \n\n inizio calcolo metriche per la release " + release.getName()));
 
         // Numero ottimale di thread basato sui core disponibili
-        data.mapCommitRelease = filterCommitsByRelease(release);
-        List<RevCommit> passingList = new ArrayList<>(data.mapCommitRelease.keySet());
+        data.commitReleases = filterCommitsByRelease(release);
+        // la tabella è in ordine di log: letta al contrario dà i commit in ordine cronologico
+        CommitTable commitTable = gitHubInfoRetrieve.getCommitTable();
+        List<CommitDescriptor> passingList = new ArrayList<>();
+        for (int i = data.commitReleases.length - 1; i >= 0; i--) {
+            if (data.commitReleases[i] != null) {
+                passingList.add(commitTable.get(i));
+            }
+        }
         int startIndex = Math.max(0, passingList.size() - ConstantSize.NUM_COMMITS);
         data.releaseCommits = passingList.subList(startIndex, passingList.size());
         LOGGER.info("number of commit to check: {}", data.releaseCommits.size());
-        data.commitsAnalyzed = new HashMap<>();
-        data.commitHashesToProcess = new HashSet<>();
-        data.commitsByHash = new HashMap<>();
+        data.commitsAnalyzed = new BitSet();
+        data.commitsToProcess = new ArrayList<>();
 
         getCommitsInCache(data);
-        int cachedCommitsSize = data.releaseCommits.size() - data.commitHashesToProcess.size();
+        int cachedCommitsSize = data.releaseCommits.size() - data.commitsToProcess.size();
 
         LOGGER.info("Found {} commits in cache, need to process {} commits",
                 cachedCommitsSize,
-                data.commitHashesToProcess.size());
-        if (data.commitHashesToProcess.isEmpty()) {
+                data.commitsToProcess.size());
+        if (data.commitsToProcess.isEmpty()) {
             System.out.println("No commits to process for release ");
             assignBuggyness(data);
             ClassWriter.writeResultsToFile(data.release, projectName, data.releaseResults, dataSetType);
 
         }
 
-        if (!data.releaseResults.isEmpty() && data.commitHashesToProcess.size() > ConstantSize.FREQUENCY_WRITE_CSV && dataSetType.equals(DataSetType.TRAINING)) {
+        if (!data.releaseResults.isEmpty() && data.commitsToProcess.size() > ConstantSize.FREQUENCY_WRITE_CSV && dataSetType.equals(DataSetType.TRAINING)) {
             System.out.println("writing before the elaboration");
             assignBuggyness(data);
             ClassWriter.writeResultsToFile(data.release, projectName, data.releaseResults, DataSetType.PARTIAL);
         }
 
 
-        if (!data.commitHashesToProcess.isEmpty()) {
+        if (!data.commitsToProcess.isEmpty()) {
             // Process only the commits that aren't in the cache
             int maxRetries = 3; // Numero massimo di tentativi di elaborazione completa
             for (int attempt = 0; attempt < maxRetries; attempt++) {
@@ -530,42 +394,18 @@ public class MetricsCalculator {
 
 
 
+    /**
+     * Releases the off-heap store of the commit metrics
+     */
+    @Override
+    public void close() {
+        resultCommitsMethods.close();
+    }
+
     public  void calculateAll(List<Release> releaseList) {
-        RevCommit veryFirstCommit = null;
         this.releaseList = releaseList;
-        int len = releaseList.size();
-        for(int i = 0; i < len; i++){
-            Release currRelease = releaseList.get(i);
-
-            List<ClassFile> classFiles = currRelease.getReleaseAllClass();
-
-            List<RevCommit> revCommitList = currRelease.getAllReleaseCommits();
-            RevCommit firstCommit = revCommitList.get(0);
-
-            for(RevCommit commit:revCommitList){
-                if(veryFirstCommit == null){
-                    veryFirstCommit = commit;
-                }
-
-                List<String> modifiedFiles = gitHubInfoRetrieve.getDifference(commit,false);
-                List<String> addedFiles = gitHubInfoRetrieve.getDifference(commit,true);
-                String authorName = commit.getAuthorIdent().getName();
-                if(!modifiedFiles.isEmpty() && i == 0) {
-                    updateNr(modifiedFiles, currRelease);
-                    calculateDateOfCreation(currRelease,currRelease,commit.getCommitterIdent().getWhen(),addedFiles);
-                }
-                else if(!modifiedFiles.isEmpty()){
-                    updateNr(modifiedFiles, currRelease);
-                    calculateDateOfCreation(currRelease,releaseList.get(i-1),commit.getCommitterIdent().getWhen(),addedFiles);
-                }
-                updateNAuth(modifiedFiles,currRelease,authorName);
-            }
-
-            creationDateSetter(classFiles,firstCommit);
-
-
-
-        }
+        // NR, nAuth e data di creazione con un solo diff per commit
+        new HistoryMetricsEngine(gitHubInfoRetrieve.getRepository(), diffIndex, gitHubInfoRetrieve.getCommitTable()).compute(releaseList);
         calculateAge(releaseList);
     }
 
@@ -599,153 +439,267 @@ public class MetricsCalculator {
     }
 
 
-    private void creationDateSetter(List<ClassFile> classFiles,RevCommit firstCommit){
-        for (ClassFile file : classFiles) {
-            if (file.getCreationDate() == null) {
-                file.setCreationDate(firstCommit.getCommitterIdent().getWhen());
+    /**
+     * @return la release di ogni commit anteriore alla release target, indicizzata con l'indice
+     * del commit nella CommitTable; null per i commit delle release successive
+     */
+    Release[] filterCommitsByRelease(Release targetRelease) {
+        Release[] commitReleases = new Release[gitHubInfoRetrieve.getCommitTable().size()];
+        long targetTime = targetRelease.getDate().getTime();
+
+        // Itera su tutte le release fino alla release target
+        for (Release currentRelease : releaseList) {
+            // Ferma l'iterazione quando raggiungiamo la release target
+            if (currentRelease.getId() >= targetRelease.getId()) {
+                break;
             }
-        }
-    }
 
-    private void updateNAuth(List<String> modifiedFiles,Release release,String authName){
-        for(String path:modifiedFiles){
-            ClassFile file = release.getClassFileByPath(path);
-            if (file != null){
-                file.addAuthor(authName);
+            // Un commit successivo alla data della release target è assegnato alla release target
+            for (CommitDescriptor commit : currentRelease.getAllReleaseCommits()) {
+                commitReleases[commit.getIndex()] = commit.getCommitTime() < targetTime ? currentRelease : targetRelease;
             }
         }
+
+        return commitReleases;
     }
-    private void updateNr(List<String> modifiedFiles,Release release){
-        for(String path:modifiedFiles){
-            ClassFile file = release.getClassFileByPath(path);
-            if(file != null){
-                file.incrementNR();
-            }
+
+
+
+
+    /**
+     * Quanto serve per analizzare un commit, preparato dallo stage di lettura della pipeline
+     */
+    private static final class CommitSnapshot {
+        private final CommitDescriptor commit;
+        // percorso -> blob dei file java modificati dal commit, null in modalità SHARED_WORKTREE
+        private Map<String, ObjectId> blobs;
+        // blob da analizzare perché assenti dalla blob cache
+        private Map<String, ObjectId> missing;
+        // contenuto dei blob mancanti, letto in anticipo solo in modalità IN_MEMORY
+        private Map<String, String> sources;
+
+        private CommitSnapshot(CommitDescriptor commit) {
+            this.commit = commit;
         }
     }
 
-    private void calculateDateOfCreation(Release currentRelease, Release precRelease, Date commitDate, List<String> addedFiles){
-        if(currentRelease.getId() == precRelease.getId()){
-            for(String file:addedFiles){
-                ClassFile currFile = currentRelease.getClassFileByPath(file);
-                if(currFile != null && (currFile.getCreationDate() == null || currFile.getCreationDate().after(commitDate))){
-                    currFile.setCreationDate(commitDate);
-                }
+    /**
+     * Come {@link #readSnapshot(CommitDescriptor)}, dopo aver preso un permesso del controller;
+     * il permesso è restituito dall'analisi dello snapshot, o subito se la lettura fallisce.
+     * Un'interruzione durante l'attesa del permesso ferma lo stage di lettura invece di far fallire il commit.
+     */
+    private CommitSnapshot readSnapshot(CommitDescriptor commit, ConcurrencyController concurrencyController) throws IOException, InterruptedException {
+        concurrencyController.acquire();
+        boolean read = false;
+        try {
+            CommitSnapshot snapshot = readSnapshot(commit);
+            read = true;
+            return snapshot;
+        } finally {
+            if (!read) {
+                concurrencyController.release();
             }
-            return;
         }
-        parserFiles(addedFiles,precRelease,currentRelease,commitDate);
     }
 
-    private void parserFiles(List<String> addedFiles,Release precRelease,Release currentRelease,Date commitDate){
-        for(String file:addedFiles){
-            ClassFile precFile = precRelease.getClassFileByPath(file);
-            //precFile == null se nella release precedente era presente la classe java in questione
-            if(precFile == null){
-                ClassFile currFile = currentRelease.getClassFileByPath(file);
-                if(currFile != null && currFile.getCreationDate() != null){
-                    if(commitDate.before(currFile.getCreationDate())){
-                        currFile.setCreationDate(commitDate);
-                    }
-                }
-                else if(currFile != null){
-                    currFile.setCreationDate(commitDate);
-                }
-            }
-            //qui la classe java è stata introdotta nella più recente release
-            else if(currentRelease.getClassFileByPath(file) != null){
-                currentRelease.getClassFileByPath(file).setCreationDate(commitDate);
-            }
+    /**
+     * Legge dall'object database i blob del commit e, in memoria, il contenuto di quelli mai analizzati
+     */
+    private CommitSnapshot readSnapshot(CommitDescriptor commit) throws IOException {
+        CommitSnapshot snapshot = new CommitSnapshot(commit);
+        if (ConstantSize.MATERIALIZATION_MODE == MaterializationMode.SHARED_WORKTREE) {
+            // il checkout avviene nello stage di analisi, sotto il lock del worktree
+            return snapshot;
+        }
+        snapshot.blobs = repositoryManager.readCommitBlobIds(commit);
+        snapshot.missing = blobMetricsCache.missing(snapshot.blobs);
+        if (ConstantSize.MATERIALIZATION_MODE == MaterializationMode.IN_MEMORY && !snapshot.missing.isEmpty()) {
+            snapshot.sources = repositoryManager.readBlobs(snapshot.missing);
         }
+        return snapshot;
     }
 
-
-    Map<RevCommit,Release> filterCommitsByRelease(Release targetRelease) {
-        Map<RevCommit,Release> commitReleaseMap = new HashMap<>();
-
-        // Itera su tutte le release fino alla release target
-        for (Release currentRelease : releaseList) {
-            // Ferma l'iterazione quando raggiungiamo la release target
-            if (currentRelease.getId() >= targetRelease.getId()) {
-                break;
+    /**
+     * Calcola le metriche dei metodi di un commit.
+     * CK e PMD vengono eseguiti solo sui blob mai visti prima, gli altri riusano la blob cache.
+     */
+    private Map<String, MethodInstance> analyzeSnapshot(CommitSnapshot snapshot, Release release) throws IOException {
+        CommitDescriptor commit = snapshot.commit;
+        if (ConstantSize.MATERIALIZATION_MODE == MaterializationMode.SHARED_WORKTREE) {
+            Path commitTempDir = tempDirPath.resolve(release.getName() + "_" + commit.getName());
+            // Sincronizza l'accesso al repository Git
+            synchronized (worktreeLock) {
+                // Checkout del commit appartenente alla release
+                repositoryManager.checkoutRelease(commit, commitTempDir);
             }
+            Map<String, List<MethodMetrics>> metricsByFile = WorkerExecutors.onCpu(() -> calculateCKMetrics(commitTempDir));
 
-            // Per ogni commit nella release corrente
-            for (RevCommit commit : currentRelease.getAllReleaseCommits()) {
-                // Verifica che il commit sia effettivamente anteriore alla release target
-                if (commit.getCommitterIdent().getWhen().before(targetRelease.getDate())) {
-                    commitReleaseMap.put(commit, currentRelease);
-                }else{
-                    commitReleaseMap.put(commit, targetRelease);
-                }
+            // Pulisci la directory temporanea del commit
+            repositoryManager.cleanupTempDirectory(commitTempDir);
+            return toReleaseResults(metricsByFile.values(), release);
+        }
+
+        if (!snapshot.missing.isEmpty()) {
+            Map<String, List<MethodMetrics>> computed = snapshot.sources != null
+                    ? WorkerExecutors.onCpu(() -> calculateCKMetrics(snapshot.sources))
+                    : calculateBlobMetrics(commit, release, snapshot.missing);
+            for (Map.Entry<String, ObjectId> blob : snapshot.missing.entrySet()) {
+                blobMetricsCache.put(blob.getValue(), computed.getOrDefault(blob.getKey(), Collections.emptyList()));
             }
         }
 
-        return commitReleaseMap;
+        List<List<MethodMetrics>> commitMetrics = new ArrayList<>(snapshot.blobs.size());
+        for (ObjectId blobId : snapshot.blobs.values()) {
+            commitMetrics.add(blobMetricsCache.get(blobId));
+        }
+        return toReleaseResults(commitMetrics, release);
     }
 
+    /**
+     * Calcola le metriche dei soli blob indicati, in memoria, esportandoli dall'object database
+     * o direttamente sulla copia di lavoro del pool in cui è stato fatto il checkout del commit
+     */
+    private Map<String, List<MethodMetrics>> calculateBlobMetrics(CommitDescriptor commit, Release release, Map<String, ObjectId> blobs) throws IOException {
+        if (ConstantSize.MATERIALIZATION_MODE == MaterializationMode.IN_MEMORY) {
+            // I sorgenti restano in memoria: nessuna directory temporanea da creare e cancellare
+            return calculateCKMetrics(repositoryManager.readBlobs(blobs));
+        }
 
+        if (ConstantSize.MATERIALIZATION_MODE == MaterializationMode.WORKTREE_POOL) {
+            // Checkout su una copia di lavoro del pool, in parallelo con gli altri thread:
+            // CK e PMD leggono i file mancanti dalla copia stessa, che resta riservata fino alla fine dell'analisi
+            try (WorktreePool.Lease lease = repositoryManager.getWorktreePool().acquire()) {
+                Path workTree = lease.checkout(commit);
+                return WorkerExecutors.onCpu(() -> calculateCKMetrics(workTree, blobs.keySet()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Attesa di uno slot del worktree pool interrotta", e);
+            }
+        }
 
+        Path commitTempDir = tempDirPath.resolve(release.getName() + "_" + commit.getName());
+        try {
+            // Lettura dei blob dall'object database, senza lock sul worktree
+            repositoryManager.exportBlobs(blobs, commitTempDir);
+            return WorkerExecutors.onCpu(() -> calculateCKMetrics(commitTempDir));
+        } finally {
+            repositoryManager.cleanupTempDirectory(commitTempDir);
+        }
+    }
 
-    private Map<String, MethodInstance> calculateCKMetrics(Path sourcePath, Release release ){
-
-        // Crea una mappa per contenere i risultati dei metodi analizzati
-
+    /**
+     * Calcola le metriche CK e PMD dei soli file indicati (percorsi relativi) di un albero di sorgenti,
+     * raggruppate per percorso relativo
+     */
+    private Map<String, List<MethodMetrics>> calculateCKMetrics(Path sourcePath, Collection<String> relativePaths) {
+        Map<String, List<MethodMetrics>> metricsByFile = new HashMap<>();
+        Path root = sourcePath.toAbsolutePath().normalize();
+        Path[] javaFiles = relativePaths.stream().map(root::resolve).toArray(Path[]::new);
+
+        Map<String, SmellLineIndex> smellsByFile = PmdRunner.analyzeFiles(List.of(javaFiles));
+
+        new CK().calculate(root, classResult -> {
+            Path file = Paths.get(classResult.getFile()).toAbsolutePath().normalize();
+            SmellLineIndex smells = smellsByFile.getOrDefault(file.toString(), SmellLineIndex.FAILED);
+            String relativePath = root.relativize(file).toString().replace('\\', '/');
+            collectMethodMetrics(classResult, metricsByFile.computeIfAbsent(relativePath, k -> new ArrayList<>()),
+                    method -> smells.countBetween(method.getStartLine(), method.getStartLine() + method.getLoc()));
+        }, javaFiles);
+
+        return metricsByFile;
+    }
 
-        Map<String,MethodInstance>methodInstanceResults=new HashMap<>();
+    /**
+     * Calcola le metriche CK e PMD dei file di una directory, raggruppate per percorso relativo
+     */
+    private Map<String, List<MethodMetrics>> calculateCKMetrics(Path sourcePath) {
 
+        // Crea una mappa per contenere i risultati dei metodi analizzati
+        Map<String, List<MethodMetrics>> metricsByFile = new HashMap<>();
+        Path root = sourcePath.toAbsolutePath().normalize();
 
         // Istanzia CK per l'analisi del codice
         CK ck = new CK();
-        //final HashMap<Object, Integer> classFile_smell=(HashMap<Object, Integer>) PmdRunner.collectCodeSmellMetricsProject(sourcePath);;
 
+        // Un'unica esecuzione di PMD su tutto lo snapshot, le classi interne riusano l'indice del proprio file
+        Map<String, SmellLineIndex> smellsByFile = PmdRunner.analyzeSnapshot(sourcePath);
 
         // Esegui l'analisi sui file sorgente specificati dal percorso
         ck.calculate(sourcePath, classResult -> {
-            if (classResult.getMethods() == null || classResult.getMethods().isEmpty()) {
-                // Nessun metodo nella classe -> ignora tranquillamente
-                return;
-            }
-            // Itera su ciascun metodo trovato nella classe analizzata
-            String pathClass=Release.normalizeToModuleAndClass(classResult.getClassName());
-
-            int nSmell=-1;
-
-
-
-
-            for (CKMethodResult method : classResult.getMethods()) {
-                // Ottieni il nome completo del metodo (ad esempio: Classe.metodo)
-
-                try {
+            Path file = Paths.get(classResult.getFile()).toAbsolutePath().normalize();
+            SmellLineIndex smells = smellsByFile.computeIfAbsent(file.toString(),
+                    name -> PmdRunner.collectSmellLineIndex(Paths.get(name)));
+            String relativePath = root.relativize(file).toString().replace('\\', '/');
+            collectMethodMetrics(classResult, metricsByFile.computeIfAbsent(relativePath, k -> new ArrayList<>()),
+                    method -> smells.countBetween(method.getStartLine(), method.getStartLine() + method.getLoc()));
+        });
 
-                    nSmell=PmdRunner.collectCodeSmellMetricsClass(classResult.getClassName(),sourcePath.toString(),method.getStartLine(),method.getStartLine()+method.getLoc());
+        // Restituisci tutti i risultati analizzati
+        return metricsByFile;
+    }
 
+    /**
+     * Calcola le metriche CK e PMD su sorgenti in memoria (percorso relativo -> contenuto)
+     */
+    private Map<String, List<MethodMetrics>> calculateCKMetrics(Map<String, String> sources) {
+        Map<String, List<MethodMetrics>> metricsByFile = new HashMap<>();
 
+        Map<String, SmellLineIndex> smellsByFile = PmdRunner.analyzeSnapshot(sources);
 
+        CKInMemoryRunner.calculate(sources, classResult -> {
+            SmellLineIndex smells = smellsByFile.getOrDefault(classResult.getFile(), SmellLineIndex.FAILED);
+            collectMethodMetrics(classResult, metricsByFile.computeIfAbsent(classResult.getFile(), k -> new ArrayList<>()),
+                    method -> smells.countBetween(method.getStartLine(), method.getStartLine() + method.getLoc()));
+        });
 
-                    MethodInstance methodInstance= new MethodInstance();
+        return metricsByFile;
+    }
 
+    /**
+     * Estrae le metriche CK dei metodi di una classe, con il numero di smell restituito da smellCounter
+     */
+    private void collectMethodMetrics(CKClassResult classResult, List<MethodMetrics> fileMetrics,
+                                      ToIntFunction<CKMethodResult> smellCounter) {
+        if (classResult.getMethods() == null || classResult.getMethods().isEmpty()) {
+            // Nessun metodo nella classe -> ignora tranquillamente
+            return;
+        }
 
+        // Itera su ciascun metodo trovato nella classe analizzata
+        for (CKMethodResult method : classResult.getMethods()) {
+            try {
+                int nSmell = smellCounter.applyAsInt(method);
+                fileMetrics.add(new MethodMetrics(classResult.getClassName(), method.getQualifiedMethodName(),
+                        method.getMethodName(), new int[]{
+                        method.getLoc(),
+                        method.getWmc(),
+                        method.getAssignmentsQty(),
+                        method.getMathOperationsQty(),
+                        method.getTryCatchQty(),
+                        method.getReturnQty(),
+                        method.getFanin(),
+                        method.getFanout(),
+                        nSmell}));
+            } catch (Exception e) {
+                LOGGER.error("Errore durante l'analisi del metodo: {} ", method.getQualifiedMethodName(), e);
+            }
+        }
+    }
 
-                    methodInstance.setFilePath(method.getQualifiedMethodName());
+    /**
+     * Converte le metriche dei file in MethodInstance della release, arricchite con le metriche
+     * della classe (age, nAuth, nr) che dipendono dalla release e non dal contenuto del file
+     */
+    private Map<String, MethodInstance> toReleaseResults(Collection<List<MethodMetrics>> filesMetrics, Release release) {
+        Map<String, MethodInstance> methodInstanceResults = new HashMap<>();
+        for (List<MethodMetrics> fileMetrics : filesMetrics) {
+            for (MethodMetrics metrics : fileMetrics) {
+                try {
+                    MethodInstance methodInstance = metrics.toMethodInstance();
                     methodInstance.setRelease(release);
-                    methodInstance.setClassName(classResult.getClassName());
-                    methodInstance.setMethodName(method.getMethodName());
-                    // methods added to class files for assigment of buggyness
-
-
-                    methodInstance.setLoc(method.getLoc());
-                    methodInstance.setWmc(method.getWmc());
-                    methodInstance.setQtyAssigment(method.getAssignmentsQty());
-                    methodInstance.setQtyMathOperations(method.getMathOperationsQty());
-                    methodInstance.setQtyTryCatch(method.getTryCatchQty());
-                    methodInstance.setQtyReturn(method.getReturnQty());
-                    methodInstance.setFanin(method.getFanin());
-                    methodInstance.setFanout(method.getFanout());
-
 
-                    ClassFile filled_class=release.findClassFileByApproxName(classResult.getClassName());
+                    // methods added to class files for assigment of buggyness
+                    ClassFile filled_class=release.findClassFileByApproxName(metrics.getCkClassName());
                     if (filled_class!=null){
                         methodInstance.setAge(filled_class.getAge());
                         methodInstance.setnAuth(filled_class.getnAuth());
@@ -757,19 +711,13 @@ public class MetricsCalculator {
                         methodInstance.setnAuth(-1);
                     }
 
-                    methodInstance.setnSmells(nSmell);
                     methodInstance.setBuggy(false);
                     methodInstanceResults.put(MethodInstance.createMethodKey(methodInstance),methodInstance);
-
                 } catch (Exception e) {
-                    LOGGER.error("Errore durante l'analisi del metodo: {} ", method.getQualifiedMethodName(), e);
-
+                    LOGGER.error("Errore durante l'analisi del metodo: {} ", metrics.getQualifiedMethodName(), e);
                 }
             }
-
-        });
-
-        // Restituisci tutti i risultati analizzati
+        }
         return methodInstanceResults;
     }
 
@@ -781,7 +729,7 @@ public class MetricsCalculator {
         resultsChanged=false;
         List<ClassFile> buggyClasses = new ArrayList<>();
         LOGGER.info("Assign buggyness");
-        List<RevCommit> revCommitList = new ArrayList<>();
+        List<CommitDescriptor> revCommitList = new ArrayList<>();
 
         // Check if there are any tickets for this release
         if (data.releaseTickets == null || data.releaseTickets.isEmpty()) {
@@ -804,7 +752,7 @@ public class MetricsCalculator {
         }
 
         for(Ticket ticket:data.releaseTickets){
-            List<RevCommit> ticketCommits = ticket.getAssociatedCommits();
+            List<CommitDescriptor> ticketCommits = ticket.getAssociatedCommits();
             revCommitList.addAll(ticketCommits);
         }
 
@@ -831,13 +779,14 @@ public class MetricsCalculator {
         sortCommits(revCommitList);
         gitHubInfoRetrieve.getUpdatedRepo();
 
-        int len = revCommitList.size();
-        for (int i = 1; i < len; i++){
-            RevCommit commit = revCommitList.get(i);
-            List<String> modifiedClasses = gitHubInfoRetrieve.getDifference(commit,false);
+        // il primo commit è escluso; le differenze degli altri sono calcolate in parallelo e applicate in ordine
+        List<CommitDescriptor> fixCommits = revCommitList.subList(1, revCommitList.size());
+        List<CommitChanges> fixChanges = new DiffService(gitHubInfoRetrieve.getRepository(), ConstantSize.DIFF_THREADS, diffIndex).diff(fixCommits);
+        for (int i = 0; i < fixCommits.size(); i++){
+            List<String> modifiedClasses = DiffService.classPaths(fixChanges.get(i).getModified());
 
             if (!modifiedClasses.isEmpty()) {
-                updateBuggyness(modifiedClasses,buggyClasses,data.release);
+                updateBuggyness(fixCommits.get(i), modifiedClasses,buggyClasses,data.release);
             }
         }
 
@@ -848,30 +797,37 @@ public class MetricsCalculator {
 
     //questo metodo scorre tutti i file modificati da un commit correlato ad un ticket, quindi tali classi
     //si assumono buggy e quindi deve essere settato il parametro buggy a true
-    private void updateBuggyness(List<String> allPaths, List<ClassFile> buggyClasses, Release release) {
+    private void updateBuggyness(CommitDescriptor commit, List<String> allPaths, List<ClassFile> buggyClasses, Release release) {
+        List<ClassFile> files = new ArrayList<>();
+        List<String> paths = new ArrayList<>();
         for (String path : allPaths) {
             ClassFile currentFile = release.getClassFileByPath(path);
-            if (currentFile == null) continue;
-            buggyClasses.add(currentFile);
-            String oldContent = gitHubInfoRetrieve.getFileContentBefore(path); // da implementare
-            String newContent = gitHubInfoRetrieve.getFileContentNow(path);    // da implementare
-
-            Map<String, String> oldMethods = extractMethodBodiesByName(oldContent); // nome → corpo
-            Map<String, String> newMethods = extractMethodBodiesByName(newContent);
-
-            for (MethodInstance method : currentFile.getMethods()) {
-                String name = ckSignature(method.getMethodName());
+            if (currentFile != null) {
+                files.add(currentFile);
+                paths.add(path);
+            }
+        }
+        if (files.isEmpty()) {
+            return;
+        }
 
-                if (!oldMethods.containsKey(name) || !newMethods.containsKey(name)) {
-                    // Metodo aggiunto o rimosso → potenzialmente buggy
-                    method.setBuggy(true);
-                    continue;
-                }
+        // versione del file nel commit e nel suo genitore, confrontate per hash del corpo dei metodi
+        Map<String, Set<String>> unchangedByPath;
+        try {
+            unchangedByPath = methodChangeService.unchangedMethods(commit, paths);
+        } catch (IOException e) {
+            LOGGER.error("Impossibile confrontare i metodi del commit {}: {}", commit.getName(), e.getMessage());
+            unchangedByPath = Collections.emptyMap();
+        }
 
-                String oldBody = oldMethods.get(name);
-                String newBody = newMethods.get(name);
+        for (int i = 0; i < files.size(); i++) {
+            ClassFile currentFile = files.get(i);
+            buggyClasses.add(currentFile);
+            Set<String> unchanged = unchangedByPath.getOrDefault(paths.get(i), Collections.emptySet());
 
-                if (!oldBody.equals(newBody)) {
+            for (MethodInstance method : currentFile.getMethods()) {
+                // un metodo aggiunto, rimosso o modificato è potenzialmente buggy
+                if (!unchanged.contains(ckSignature(method.getMethodName()))) {
                     method.setBuggy(true);
                 }
             }
@@ -880,46 +836,8 @@ public class MetricsCalculator {
         }
     }
 
-    private  Map<String, String> extractMethodBodiesByName(String source) {
-        Map<String, String> methodMap = new HashMap<>();
-        if (source == null || source.trim().isEmpty()) {
-            return methodMap;
-        }
-        try {
-            CompilationUnit cu = StaticJavaParser.parse(source);
-
-            cu.findAll(MethodDeclaration.class).forEach(m -> {
-                String name = m.getNameAsString();
-                String body = m.getBody().map(Object::toString).orElse("");
-                methodMap.put(name, body);
-            });
-        } catch (ParseProblemException e) {
-            try {
-                String errorFilePath = System.getProperty("java.io.tmpdir") + "/parsing_error_" +
-                        System.currentTimeMillis() + ".txt";
-                Files.writeString(Paths.get(errorFilePath), source);
-            } catch (IOException ioe) {
-                LOGGER.error("errore durante  il tentativo di recupero l'estrazione dei metodi: {} errore generato {}", e.getClass().getName(),  e.getMessage());
-            }
-        } catch (Exception e) {
-            LOGGER.error("errore durante l'estrazione dei metodi: {} errore generato {}", e.getClass().getName(),  e.getMessage());
-        }
-
-        return methodMap;
-    }
-
-
-
     //un metodo utile per ordinare i commit in ordine temporale
-    private void sortCommits(List<RevCommit> commits){
-        Collections.sort(commits,new RevCommitComparator());
-    }
-
-    //il comparator utile a sortCommits
-    private class RevCommitComparator implements Comparator<RevCommit> {
-        @Override
-        public int compare(RevCommit a, RevCommit b) {
-            return a.getCommitterIdent().getWhen().compareTo(b.getCommitterIdent().getWhen());
-        }
+    private void sortCommits(List<CommitDescriptor> commits){
+        commits.sort(Comparator.comparingLong(CommitDescriptor::getCommitTime));
     }
 }
@@ -8,6 +8,8 @@ import net.sourceforge.pmd.util.datasource.FileDataSource;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
+import project.models.SmellLineIndex;
+import project.utils.ConstantSize;
 import project.utils.ConstantsWindowsFormat;
 
 import javax.xml.parsers.DocumentBuilder;
@@ -17,12 +19,15 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 
 
 
 public class PmdRunner {
     static final String RULES_SET_PATH_STRING = ConstantsWindowsFormat.RULES_SET_PATH.toString();
+    private static Set<String> ruleNames;
+    private static RuleSet ruleSet;
     /**
      * Esegue l'analisi PMD su un file o directory
      */
@@ -65,6 +70,126 @@ public class PmdRunner {
         }
     }
 
+    /**
+     * Analizza in un'unica esecuzione di PMD tutti i sorgenti di uno snapshot tenuto in memoria.
+     * Il ruleset viene caricato una sola volta per JVM e PMD distribuisce i file sui propri thread.
+     *
+     * @param sources mappa percorso relativo -> contenuto del file
+     * @return le violazioni di ogni file, indicizzate per riga
+     */
+    public static Map<String, SmellLineIndex> analyzeSnapshot(Map<String, String> sources) {
+        Map<String, SmellLineIndex> smellsByFile = new HashMap<>();
+        if (sources.isEmpty()) {
+            return smellsByFile;
+        }
+
+        try (PmdAnalysis pmd = PmdAnalysis.create(createBatchConfiguration())) {
+            pmd.addRuleSet(getRuleSet());
+            for (Map.Entry<String, String> source : sources.entrySet()) {
+                pmd.files().addSourceFile(source.getValue(), source.getKey());
+            }
+            groupByFile(pmd.performAnalysisAndCollectReport(), sources.keySet(), smellsByFile, name -> name);
+        } catch (Exception e) {
+            System.err.println("Errore nell'analisi PMD dello snapshot: " + e.getMessage());
+            e.printStackTrace();
+            for (String file : sources.keySet()) {
+                smellsByFile.put(file, SmellLineIndex.FAILED);
+            }
+        }
+        return smellsByFile;
+    }
+
+    /**
+     * Come {@link #analyzeSnapshot(Map)} ma per uno snapshot esportato su disco;
+     * le chiavi sono i percorsi assoluti dei file
+     */
+    public static Map<String, SmellLineIndex> analyzeSnapshot(Path snapshotDir) {
+        Map<String, SmellLineIndex> smellsByFile = new HashMap<>();
+
+        try (PmdAnalysis pmd = PmdAnalysis.create(createBatchConfiguration())) {
+            pmd.addRuleSet(getRuleSet());
+            pmd.files().addDirectory(snapshotDir);
+            List<String> files = new ArrayList<>();
+            for (String javaFile : findJavaFiles(snapshotDir.toString())) {
+                files.add(absolutePath(javaFile));
+            }
+            groupByFile(pmd.performAnalysisAndCollectReport(), files, smellsByFile, PmdRunner::absolutePath);
+        } catch (Exception e) {
+            System.err.println("Errore nell'analisi PMD dello snapshot " + snapshotDir + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+        return smellsByFile;
+    }
+
+    /**
+     * Come {@link #analyzeSnapshot(Path)} ma solo per i file indicati, ad esempio quelli
+     * mai analizzati di una copia di lavoro; le chiavi sono i percorsi assoluti dei file
+     */
+    public static Map<String, SmellLineIndex> analyzeFiles(Collection<Path> javaFiles) {
+        Map<String, SmellLineIndex> smellsByFile = new HashMap<>();
+        if (javaFiles.isEmpty()) {
+            return smellsByFile;
+        }
+
+        try (PmdAnalysis pmd = PmdAnalysis.create(createBatchConfiguration())) {
+            pmd.addRuleSet(getRuleSet());
+            List<String> files = new ArrayList<>();
+            for (Path javaFile : javaFiles) {
+                pmd.files().addFile(javaFile);
+                files.add(absolutePath(javaFile.toString()));
+            }
+            groupByFile(pmd.performAnalysisAndCollectReport(), files, smellsByFile, PmdRunner::absolutePath);
+        } catch (Exception e) {
+            System.err.println("Errore nell'analisi PMD dei file " + javaFiles + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+        return smellsByFile;
+    }
+
+    private static void groupByFile(Report report, Collection<String> files, Map<String, SmellLineIndex> smellsByFile,
+                                    UnaryOperator<String> fileKey) {
+        Set<String> names = getRuleNames();
+        Map<String, List<Integer>> linesByFile = new HashMap<>();
+        for (String file : files) {
+            linesByFile.put(file, new ArrayList<>());
+        }
+        for (RuleViolation violation : report.getViolations()) {
+            if (names.contains(violation.getRule().getName())) {
+                linesByFile.computeIfAbsent(fileKey.apply(violation.getFilename()), k -> new ArrayList<>())
+                        .add(violation.getBeginLine());
+            }
+        }
+        for (Map.Entry<String, List<Integer>> entry : linesByFile.entrySet()) {
+            smellsByFile.put(entry.getKey(), SmellLineIndex.of(entry.getValue()));
+        }
+        // i file su cui PMD è fallito restituiscono -1, come l'analisi per singolo file
+        for (Report.ProcessingError error : report.getProcessingErrors()) {
+            smellsByFile.put(fileKey.apply(error.getFile()), SmellLineIndex.FAILED);
+        }
+    }
+
+    private static PMDConfiguration createBatchConfiguration() {
+        PMDConfiguration configuration = new PMDConfiguration();
+        configuration.setIgnoreIncrementalAnalysis(true);
+        configuration.setThreads(ConstantSize.PMD_THREADS);
+        return configuration;
+    }
+
+    /**
+     * Ruleset custom_rules.xml caricato una sola volta per JVM.
+     * PMD ne crea una copia per ogni thread di analisi, quindi può essere condiviso.
+     */
+    private static synchronized RuleSet getRuleSet() {
+        if (ruleSet == null) {
+            ruleSet = new RuleSetLoader().loadFromResource(RULES_SET_PATH_STRING);
+        }
+        return ruleSet;
+    }
+
+    private static String absolutePath(String file) {
+        return Paths.get(file).toAbsolutePath().normalize().toString();
+    }
+
     /**
      * Estrae solo il nome della classe da un nome di classe completo.
      * Rimuove il package, il modulo e qualsiasi riferimento a classi interne o anonime.
@@ -151,7 +276,7 @@ public class PmdRunner {
                 // Inizializza le metriche per questa classe
                 // Inizializza le metriche per questa classe
                 Map<String, Integer> metrics = new HashMap<>();
-                Set<String> rulesNames = getRuleNamesFromXml(RULES_SET_PATH_STRING);
+                Set<String> rulesNames = getRuleNames();
                 for (String rule : rulesNames) {
                     metrics.put(rule, 0);
                 }
@@ -198,7 +323,7 @@ public class PmdRunner {
 
             Report report = runPmdAnalysis(Path.of(javaFile));
 
-            Set<String> ruleNames = getRuleNamesFromXml(RULES_SET_PATH_STRING);
+            Set<String> ruleNames = getRuleNames();
 
             // Inizializza le metriche per questa classe
             Map<String, Integer> metrics = new HashMap<>();
@@ -236,6 +361,44 @@ public class PmdRunner {
 
         return nSmells;
     }
+
+    /**
+     * Esegue PMD una sola volta sul file e restituisce le righe delle violazioni ordinate,
+     * così gli smell di ogni metodo si ottengono con una query sull'intervallo di righe
+     */
+    public static SmellLineIndex collectSmellLineIndex(Path javaFile) {
+        try {
+            return toSmellLineIndex(runPmdAnalysis(javaFile));
+        } catch (Exception e) {
+            System.err.println("Errore nell'analisi del file " + javaFile + ": " + e.getMessage());
+            return SmellLineIndex.FAILED;
+        }
+    }
+
+    private static SmellLineIndex toSmellLineIndex(Report report) {
+        if (report == null) {
+            return SmellLineIndex.FAILED;
+        }
+        Set<String> ruleNames = getRuleNames();
+        List<Integer> lines = new ArrayList<>();
+        for (RuleViolation violation : report.getViolations()) {
+            if (ruleNames.contains(violation.getRule().getName())) {
+                lines.add(violation.getBeginLine());
+            }
+        }
+        return SmellLineIndex.of(lines);
+    }
+
+    /**
+     * Nomi delle regole del ruleset, letti dal file XML una sola volta
+     */
+    private static synchronized Set<String> getRuleNames() {
+        if (ruleNames == null) {
+            ruleNames = getRuleNamesFromXml(RULES_SET_PATH_STRING);
+        }
+        return ruleNames;
+    }
+
     /**
      * Estrae i nomi delle regole dal file XML specificato
      */
@@ -0,0 +1,130 @@
+package project.controllers;
+
+import project.models.CommitDescriptor;
+import project.models.Release;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Assigns the commits to the releases with a binary search over the release dates, instead of
+ * comparing every commit with every release. All the commits are kept in one array grouped by
+ * release, and every release is a range of it.
+ * The rules are the ones of the original assignment: a commit goes to the first release dated
+ * after it (a commit with the same date of a release goes to no intermediate release), and the
+ * last release also collects every commit older than its date except the ones of the first release.
+ * The releases must be sorted by date.
+ */
+public class ReleaseCommitBuckets {
+    private static final int NO_RELEASE = -1;
+
+    private final CommitDescriptor[] commits;
+    // starts[k]..starts[k+1] is the range of the k-th release
+    private final int[] starts;
+    // position in the input list of every commit of the array
+    private final int[] positions;
+
+    private ReleaseCommitBuckets(CommitDescriptor[] commits, int[] starts, int[] positions) {
+        this.commits = commits;
+        this.starts = starts;
+        this.positions = positions;
+    }
+
+    public static ReleaseCommitBuckets build(List<CommitDescriptor> allCommits, List<Release> releases, boolean parallel) {
+        int numRelease = releases.size();
+        long[] releaseTimes = new long[numRelease];
+        for (int k = 0; k < numRelease; k++) {
+            releaseTimes[k] = releases.get(k).getDate().getTime();
+        }
+
+        IntStream indexes = IntStream.range(0, allCommits.size());
+        if (parallel) {
+            indexes = indexes.parallel();
+        }
+        int[] buckets = indexes
+                .map(i -> bucketOf(allCommits.get(i).getCommitTime(), releaseTimes))
+                .toArray();
+
+        // counting sort stabile: nello stesso bucket i commit restano nell'ordine di ingresso
+        int[] starts = new int[numRelease + 1];
+        for (int bucket : buckets) {
+            if (bucket != NO_RELEASE) {
+                starts[bucket + 1]++;
+            }
+        }
+        for (int k = 0; k < numRelease; k++) {
+            starts[k + 1] += starts[k];
+        }
+        CommitDescriptor[] commits = new CommitDescriptor[starts[numRelease]];
+        int[] positions = new int[commits.length];
+        int[] next = Arrays.copyOf(starts, numRelease);
+        for (int i = 0; i < buckets.length; i++) {
+            if (buckets[i] != NO_RELEASE) {
+                int slot = next[buckets[i]]++;
+                commits[slot] = allCommits.get(i);
+                positions[slot] = i;
+            }
+        }
+        return new ReleaseCommitBuckets(commits, starts, positions);
+    }
+
+    /**
+     * Sets the commits of every release
+     */
+    public void assignTo(List<Release> releases) {
+        for (int k = 0; k < releases.size(); k++) {
+            releases.get(k).setAllReleaseCommits(commitsOf(k));
+        }
+    }
+
+    /**
+     * @return the commits of the k-th release in the order of the input list
+     */
+    public List<CommitDescriptor> commitsOf(int k) {
+        int numRelease = starts.length - 1;
+        if (k < numRelease - 1 || numRelease == 1) {
+            return Collections.unmodifiableList(Arrays.asList(commits).subList(starts[k], starts[k + 1]));
+        }
+        // l'ultima release comprende i range dalla seconda in poi: si riordinano per posizione di ingresso
+        // chiave = posizione di ingresso nei 32 bit alti, indice nell'array nei bassi
+        long[] keys = new long[starts[numRelease] - starts[1]];
+        for (int i = 0; i < keys.length; i++) {
+            int slot = starts[1] + i;
+            keys[i] = ((long) positions[slot] << 32) | slot;
+        }
+        Arrays.sort(keys);
+        List<CommitDescriptor> lastCommits = new ArrayList<>(keys.length);
+        for (long key : keys) {
+            lastCommits.add(commits[(int) key]);
+        }
+        return Collections.unmodifiableList(lastCommits);
+    }
+
+    /*
+     * Il bucket è la prima release con data successiva al commit. Un commit con la stessa data della
+     * release precedente non appartiene a quella release, ma solo all'ultima: lo si mette nel bucket
+     * dell'ultima release, che contiene comunque tutti i bucket dal secondo in poi.
+     */
+    private static int bucketOf(long commitTime, long[] releaseTimes) {
+        int low = 0;
+        int high = releaseTimes.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (releaseTimes[mid] <= commitTime) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        if (low == releaseTimes.length) {
+            return NO_RELEASE;
+        }
+        if (low == 0 || commitTime > releaseTimes[low - 1]) {
+            return low;
+        }
+        return releaseTimes.length - 1;
+    }
+}
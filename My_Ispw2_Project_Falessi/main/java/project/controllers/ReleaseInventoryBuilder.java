@@ -0,0 +1,144 @@
+package project.controllers;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import project.models.ClassFile;
+import project.models.CommitDescriptor;
+import project.models.MethodInstance;
+import project.models.Release;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Builds the classes and the methods of every release from the tree of its last commit.
+ * The releases are walked concurrently, each with its own ObjectReader and TreeWalk, and every
+ * thread reuses its JavaParser. A blob is parsed only once: the methods it declares are kept by
+ * blob id and shared by all the releases containing the same version of the file, each release
+ * getting its own MethodInstance objects.
+ */
+public class ReleaseInventoryBuilder {
+    private static final String SUFFIX = ".java";
+    private static final String PREFIX = "/test/";
+
+    /**
+     * Name and signature of a method declared in a blob; the path depends on the tree
+     */
+    private static final class DeclaredMethod {
+        private final String name;
+        private final String signature;
+
+        private DeclaredMethod(String name, String signature) {
+            this.name = name;
+            this.signature = signature;
+        }
+    }
+
+    private final Repository repository;
+    private final Function<ObjectId, String> classContents;
+    private final int threads;
+    // JavaParser non è thread-safe: un parser per thread, riusato per tutti i file
+    private final ThreadLocal<JavaParser> parsers = ThreadLocal.withInitial(JavaParser::new);
+    private final ConcurrentMap<ObjectId, List<DeclaredMethod>> methodsByBlob = new ConcurrentHashMap<>();
+
+    public ReleaseInventoryBuilder(Repository repository, Function<ObjectId, String> classContents, int threads) {
+        this.repository = repository;
+        this.classContents = classContents;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Adds to every release its classes and methods
+     */
+    public void build(List<Release> releases) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, releases.size())));
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Release release : releases) {
+                futures.add(executor.submit(() -> {
+                    buildRelease(release);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while building the release inventory", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException("Error while building the release inventory", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // ogni release è modificata solo dal suo task
+    private void buildRelease(Release release) throws IOException {
+        CommitDescriptor commit = release.getLastCommitPreRelease();
+        try (ObjectReader reader = repository.newObjectReader();
+             TreeWalk treeWalk = new TreeWalk(reader)) {
+            treeWalk.addTree(commit.getTreeId());
+            treeWalk.setRecursive(true);
+
+            while (treeWalk.next()) {
+                String filePath = treeWalk.getPathString();
+                if (!filePath.contains(SUFFIX) || filePath.contains(PREFIX)) {
+                    continue;
+                }
+                ObjectId blobId = treeWalk.getObjectId(0);
+                // i blob mancanti dall'object database sono saltati
+                if (!reader.has(blobId)) {
+                    continue;
+                }
+                release.addClassFile(new ClassFile(blobId, filePath, classContents));
+                for (DeclaredMethod method : declaredMethods(reader, blobId)) {
+                    release.addMethod(new MethodInstance(filePath, method.name, method.signature));
+                }
+            }
+        }
+    }
+
+    // due thread possono analizzare lo stesso blob nuovo nello stesso momento: il risultato è identico
+    private List<DeclaredMethod> declaredMethods(ObjectReader reader, ObjectId blobId) throws IOException {
+        List<DeclaredMethod> methods = methodsByBlob.get(blobId);
+        if (methods == null) {
+            String content = new String(reader.open(blobId, Constants.OBJ_BLOB).getBytes(), StandardCharsets.UTF_8);
+            methods = parseMethods(content);
+            methodsByBlob.putIfAbsent(blobId.copy(), methods);
+        }
+        return methods;
+    }
+
+    private List<DeclaredMethod> parseMethods(String content) {
+        CompilationUnit compilationUnit = parsers.get().parse(content).getResult()
+                .orElseThrow(() -> new IllegalArgumentException("Invalid Java code"));
+
+        List<DeclaredMethod> methods = new ArrayList<>();
+        for (MethodDeclaration declaration : compilationUnit.findAll(MethodDeclaration.class)) {
+            methods.add(new DeclaredMethod(declaration.getNameAsString(), declaration.getSignature().toString()));
+        }
+        return methods;
+    }
+}
@@ -5,7 +5,14 @@ import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.diff.DiffEntry;
 import org.eclipse.jgit.diff.DiffFormatter;
 import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheBuilder;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefUpdate;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevWalk;
@@ -17,31 +24,41 @@ import project.utils.ConstantSize;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 
 /**
- * Class dedicated to repository operations like backup and restore.
+ * Class dedicated to repository operations like snapshot and restore.
  */
 public class RepositoryManager {
     private  final Logger LOGGER = LoggerFactory.getLogger(RepositoryManager.class);
     private Git git;
     private Repository repository;
     private String originalRepoPath;
-    private String backupRepoPath;
+
+    // Snapshot registrato da backupRepository
+    private String snapshotHeadTarget;
+    private ObjectId snapshotHeadId;
+    private Map<String, ObjectId> snapshotRefs;
+    // entries of the index at snapshot time, null if the repository had no index
+    private DirCacheEntry[] snapshotIndex;
     private final GitHubInfoRetrieve gitHubInfoRetrieve;
 
     // Cache for storing excess files from commits
     private final Map<String, byte[]> cachedFiles = new HashMap<>();
 
+    // Working copies for parallel checkouts, created on first use
+    private WorktreePool worktreePool;
+
     /**
      * Constructor that takes a GitHubInfoRetrieve object
      */
@@ -71,37 +88,8 @@ public class RepositoryManager {
     }
 
     /**
-     * Gets the backup repository path
-     */
-    public String getBackupRepoPath() {
-        return backupRepoPath;
-    }
-
-    /**
-     * Copies a directory and its contents to a target directory
-     */
-    protected void copyDirectory(Path sourceDir, Path targetDir) throws IOException {
-        try (var walk = Files.walk(sourceDir)) {
-            walk.forEach(source -> {
-                try {
-                    Path relativePath = sourceDir.relativize(source);
-                    Path destination = targetDir.resolve(relativePath);
-
-                    if (Files.isDirectory(source)) {
-                        Files.createDirectories(destination);
-                    } else {
-                        Files.createDirectories(destination.getParent());
-                        Files.copy(source, destination);
-                    }
-                } catch (IOException e) {
-                    throw new UncheckedIOException("Errore durante la copia: " + source, e);
-                }
-            });
-        }
-    }
-
-    /**
-     * Creates a backup of the repository
+     * Records HEAD, every ref and the index of the repository. Nothing is copied: the objects
+     * are immutable, so these few values are enough to bring the repository back later.
      */
     public void backupRepository() throws IOException {
         // Verifica prerequisiti
@@ -109,117 +97,108 @@ public class RepositoryManager {
             throw new IOException("Repository non inizializzato");
         }
 
-        try {
-            // Chiudi le risorse esistenti
-            if (git != null) {
-                git.close();
-            }
-            repository.close();
-
-            File gitDir = repository.getDirectory();
-            originalRepoPath = gitDir.getParentFile().getAbsolutePath();
-            backupRepoPath = originalRepoPath + "_backup_" + System.currentTimeMillis();
-
-            // Crea e verifica directory di backup
-            Path backupPath = Paths.get(backupRepoPath);
-            Files.createDirectories(backupPath);
+        originalRepoPath = repository.getWorkTree().getAbsolutePath();
 
-            // Copia i file
-            copyDirectory(Paths.get(originalRepoPath), backupPath);
+        Ref head = repository.exactRef(Constants.HEAD);
+        snapshotHeadTarget = head != null && head.isSymbolic() ? head.getTarget().getName() : null;
+        snapshotHeadId = head != null ? head.getObjectId() : null;
 
-            // Riapri il repository originale
-            File repoDir = new File(gitHubInfoRetrieve.getPath());
-            this.repository = Git.open(repoDir).getRepository();
-            this.git = new Git(repository);
+        snapshotRefs = new HashMap<>();
+        for (Ref ref : repository.getRefDatabase().getRefs()) {
+            if (!ref.isSymbolic() && ref.getObjectId() != null) {
+                snapshotRefs.put(ref.getName(), ref.getObjectId());
+            }
+        }
 
-        } catch (UncheckedIOException e) {
-            throw new IOException("Errore durante il backup: " + e.getMessage(), e.getCause());
+        if (Files.exists(repository.getIndexFile().toPath())) {
+            DirCache index = repository.readDirCache();
+            snapshotIndex = new DirCacheEntry[index.getEntryCount()];
+            for (int i = 0; i < snapshotIndex.length; i++) {
+                snapshotIndex[i] = new DirCacheEntry(index.getEntry(i));
+            }
+        } else {
+            snapshotIndex = null;
         }
-    }
 
-    /**
-     * Restores the repository from a backup using the class fields
-     */
-    public void restoreFromBackup() throws IOException {
-        restoreFromBackup(this.backupRepoPath, this.originalRepoPath);
+        LOGGER.info("Snapshot del repository {}: HEAD {} e {} ref", originalRepoPath,
+                snapshotHeadTarget != null ? snapshotHeadTarget : snapshotHeadId, snapshotRefs.size());
     }
 
     /**
-     * Restores the repository from a backup with improved handling for locked files
+     * Brings refs, HEAD and index back to the last snapshot, then realigns the working tree to the index.
+     * The cost depends on the number of refs and of changed files, not on the size of the clone.
      */
-    public void restoreFromBackup(String backupRepoPath, String originalRepoPath) throws IOException {
+    public void restoreFromBackup() throws IOException {
         // Verifica prerequisiti
-        if (backupRepoPath == null || originalRepoPath == null) {
-            throw new IOException("Nessun backup disponibile per il ripristino");
-        }
-
-        Path backupPath = Paths.get(backupRepoPath);
-        if (!Files.exists(backupPath)) {
-            throw new IOException("Directory di backup non trovata: " + backupRepoPath);
+        if (snapshotRefs == null) {
+            throw new IOException("Nessuno snapshot disponibile per il ripristino");
         }
 
         try {
-            // Chiudi il repository corrente e rilascia tutte le risorse
-            if (git != null) {
-                git.close();
-                git = null;
+            // Elimina i ref creati dopo lo snapshot e riporta gli altri al valore registrato
+            for (Ref ref : repository.getRefDatabase().getRefs()) {
+                if (!ref.isSymbolic() && !snapshotRefs.containsKey(ref.getName())) {
+                    RefUpdate refUpdate = repository.updateRef(ref.getName());
+                    refUpdate.setForceUpdate(true);
+                    checkRefUpdate(refUpdate.delete(), ref.getName());
+                }
             }
-            if (repository != null) {
-                repository.close();
-                repository = null;
+            for (Map.Entry<String, ObjectId> entry : snapshotRefs.entrySet()) {
+                Ref current = repository.exactRef(entry.getKey());
+                if (current == null || !entry.getValue().equals(current.getObjectId())) {
+                    RefUpdate refUpdate = repository.updateRef(entry.getKey());
+                    refUpdate.setNewObjectId(entry.getValue());
+                    checkRefUpdate(refUpdate.forceUpdate(), entry.getKey());
+                }
             }
 
-            // Forza la garbage collection per liberare risorse
-            System.gc();
-            Thread.sleep(500); // Attendi che la GC faccia effetto
+            RefUpdate headUpdate = repository.updateRef(Constants.HEAD, snapshotHeadTarget == null);
+            if (snapshotHeadTarget != null) {
+                checkRefUpdate(headUpdate.link(snapshotHeadTarget), Constants.HEAD);
+            } else if (snapshotHeadId != null) {
+                headUpdate.setNewObjectId(snapshotHeadId);
+                checkRefUpdate(headUpdate.forceUpdate(), Constants.HEAD);
+            }
 
-            // Elimina la directory corrente con retry
-            Path originalPath = Paths.get(originalRepoPath);
-            if (Files.exists(originalPath)) {
-                boolean deleted = deleteDirectoryWithRetry(originalPath, 5, 1000);
-                if (!deleted) {
-                    LOGGER.warn("Alcuni file non sono stati eliminati durante il ripristino. " +
-                               "Il ripristino continuerà comunque, ma potrebbero esserci problemi.");
-                }
+            if (snapshotIndex != null) {
+                restoreIndex();
             }
 
-            // Crea la directory originale
-            Files.createDirectories(originalPath);
+            // Riallinea il working tree all'indice ripristinato, riscrivendo solo i file modificati,
+            // poi rimuove i file e le directory non tracciati lasciati dai checkout
+            git.checkout().setAllPaths(true).call();
+            git.clean().setCleanDirectories(true).setForce(true).call();
 
-            // Copia i file dal backup
-            copyDirectory(backupPath, originalPath);
+            LOGGER.info("Repository {} riportato allo snapshot", originalRepoPath);
+        } catch (GitAPIException e) {
+            throw new IOException("Errore durante il ripristino dello snapshot", e);
+        }
+    }
 
-            // Tenta di aprire il nuovo repository
-            try {
-                git = Git.open(new File(originalRepoPath));
-                repository = git.getRepository();
-
-                // Verifica che il repository sia valido
-                if (repository.getBranch() != null) {
-                    // Solo se tutto è ok, elimina il backup con retry
-                    boolean backupDeleted = deleteDirectoryWithRetry(backupPath, 3, 500);
-                    if (backupDeleted) {
-                        LOGGER.info("Repository ripristinato con successo e backup eliminato");
-                    } else {
-                        LOGGER.info("Repository ripristinato con successo, ma il backup non è stato completamente eliminato: {}", backupPath);
-                    }
-                } else {
-                    throw new IOException("Repository ripristinato non valido");
-                }
-            } catch (IOException e) {
-                LOGGER.error("Errore nell'apertura del repository ripristinato: {}", e.getMessage());
-                if (Files.exists(backupPath)) {
-                    LOGGER.info("Backup mantenuto per possibile recupero manuale in: {}", backupPath);
-                }
-                throw new IOException("Errore nel ripristino del repository", e);
+    // l'indice è riscritto sotto il suo lock, come fa git: un altro scrittore non può sovrapporsi
+    private void restoreIndex() throws IOException {
+        DirCache index = repository.lockDirCache();
+        try {
+            DirCacheBuilder builder = index.builder();
+            for (DirCacheEntry entry : snapshotIndex) {
+                builder.add(new DirCacheEntry(entry));
             }
+            builder.finish();
+            index.write();
+            if (!index.commit()) {
+                throw new IOException("Impossibile scrivere l'indice di " + originalRepoPath);
+            }
+        } finally {
+            index.unlock();
+        }
+    }
 
-        } catch (UncheckedIOException e) {
-            LOGGER.error("Errore durante la copia dei file: {}", e.getMessage());
-            throw new IOException("Errore durante il ripristino", e.getCause());
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new IOException("Operazione interrotta durante il ripristino", e);
+    private static void checkRefUpdate(RefUpdate.Result result, String refName) throws IOException {
+        switch (result) {
+            case NEW, FORCED, FAST_FORWARD, NO_CHANGE, RENAMED:
+                return;
+            default:
+                throw new IOException("Ripristino del ref " + refName + " fallito: " + result);
         }
     }
 
@@ -306,7 +285,7 @@ public class RepositoryManager {
         }
     }
 
-    protected void checkoutRelease(RevCommit commit, Path commitTempDir) {
+    protected void checkoutRelease(ObjectId commit, Path commitTempDir) {
         try {
             // First try: clean the working directory before checkout
             try {
@@ -377,7 +356,7 @@ public class RepositoryManager {
         }
     }
 
-    private void exportCodeToDirectory(RevCommit commit, Path targetDir) {
+    private void exportCodeToDirectory(ObjectId commitId, Path targetDir) {
         try {
             // Ensure target directory exists
             ensureTempDirectoryExists(targetDir);
@@ -415,6 +394,7 @@ public class RepositoryManager {
             // If we still need more files, process from the current commit
             if (processedFilesCount < maxFilesToProcess) {
                 RevWalk revWalk = new RevWalk(repository);
+                RevCommit commit = revWalk.parseCommit(commitId);
                 RevCommit parent = commit.getParentCount() > 0 ? revWalk.parseCommit(commit.getParent(0).getId()) : null;
 
                 DiffFormatter df = new DiffFormatter(DisabledOutputStream.INSTANCE);
@@ -472,9 +452,96 @@ public class RepositoryManager {
             LOGGER.info("Classi da processare: {}, Rimaste in cache: {}", count, cachedFiles.size());
 
         } catch (Exception e) {
-            LOGGER.error("Errore durante l'esportazione dei file del commit: {} ", commit.getName(), e);
+            LOGGER.error("Errore durante l'esportazione dei file del commit: {} ", commitId.getName(), e);
         }
     }
+    /**
+     * Writes only the given blobs (path -> blob id) into the target directory, reading them
+     * straight from the object database without touching the shared worktree.
+     * Every call opens its own ObjectReader, so commits can be exported concurrently.
+     */
+    public void exportBlobs(Map<String, ObjectId> blobs, Path targetDir) throws IOException {
+        try (ObjectReader reader = repository.newObjectReader()) {
+            ensureTempDirectoryExists(targetDir);
+            for (Map.Entry<String, ObjectId> entry : blobs.entrySet()) {
+                byte[] content = reader.open(entry.getValue(), Constants.OBJ_BLOB).getBytes();
+                Path targetFilePath = targetDir.resolve(entry.getKey());
+                Files.createDirectories(targetFilePath.getParent());
+                Files.write(targetFilePath, content);
+            }
+        }
+    }
+
+    /**
+     * Returns the pool of working copies sharing the object database of the repository
+     */
+    public synchronized WorktreePool getWorktreePool() throws IOException {
+        if (worktreePool == null) {
+            Path root = Paths.get(System.getProperty("java.io.tmpdir"), "ck_worktrees");
+            worktreePool = new WorktreePool(repository, root, ConstantSize.NUM_THREADS);
+        }
+        return worktreePool;
+    }
+
+    /**
+     * Closes the pool of working copies, if it was created, and deletes their directories
+     */
+    public synchronized void closeWorktreePool() {
+        if (worktreePool != null) {
+            worktreePool.close();
+            worktreePool = null;
+        }
+    }
+
+    /**
+     * Returns path and blob id of the non-test Java files changed by a commit, without reading their content.
+     */
+    public Map<String, ObjectId> readCommitBlobIds(ObjectId commit) throws IOException {
+        try (ObjectReader reader = repository.newObjectReader()) {
+            return collectChangedJavaBlobs(reader, commit);
+        }
+    }
+
+    /**
+     * Reads the content of the given blobs, keyed by the same paths.
+     * Nothing is written to disk, so no temporary directory has to be cleaned afterwards.
+     */
+    public Map<String, String> readBlobs(Map<String, ObjectId> blobs) throws IOException {
+        Map<String, String> sources = new LinkedHashMap<>();
+        try (ObjectReader reader = repository.newObjectReader()) {
+            for (Map.Entry<String, ObjectId> entry : blobs.entrySet()) {
+                byte[] content = reader.open(entry.getValue(), Constants.OBJ_BLOB).getBytes();
+                sources.put(entry.getKey(), new String(content, StandardCharsets.UTF_8));
+            }
+        }
+        return sources;
+    }
+
+    /**
+     * Collects path and blob id of the non-test Java files added or modified by a commit
+     * with respect to its first parent.
+     */
+    private Map<String, ObjectId> collectChangedJavaBlobs(ObjectReader reader, ObjectId commit) throws IOException {
+        Map<String, ObjectId> javaBlobs = new LinkedHashMap<>();
+        try (RevWalk revWalk = new RevWalk(reader);
+             DiffFormatter df = new DiffFormatter(DisabledOutputStream.INSTANCE)) {
+            RevCommit current = revWalk.parseCommit(commit);
+            RevCommit parent = current.getParentCount() > 0 ? revWalk.parseCommit(current.getParent(0).getId()) : null;
+
+            df.setReader(reader, repository.getConfig());
+            df.setDiffComparator(RawTextComparator.DEFAULT);
+            df.setDetectRenames(true);
+
+            for (DiffEntry entry : df.scan(parent == null ? null : parent.getTree(), current.getTree())) {
+                String path = entry.getNewPath();
+                if (entry.getChangeType() != DiffEntry.ChangeType.DELETE && path.endsWith(".java") && !isTestFile(path)) {
+                    javaBlobs.put(path, entry.getNewId().toObjectId());
+                }
+            }
+        }
+        return javaBlobs;
+    }
+
     private boolean isTestFile(String path) {
         String lowerPath = path.toLowerCase();
         return lowerPath.contains("/test/") || lowerPath.contains("test") || lowerPath.contains("mock");
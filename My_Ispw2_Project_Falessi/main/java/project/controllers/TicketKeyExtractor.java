@@ -0,0 +1,62 @@
+package project.controllers;
+
+import project.models.CommitDescriptor;
+import project.models.CommitTable;
+import project.models.Ticket;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Finds the Jira keys (e.g. OPENJPA-123) quoted in the commit messages.
+ * A key counts only when it is followed by ':', ']' or a space, as in the messages
+ * "OPENJPA-123: fix", "[OPENJPA-123] fix" and "OPENJPA-123 fix".
+ * Every message is scanned once and the tickets are looked up by key, instead of searching
+ * every ticket key in every message. The compiled pattern is shared, so the messages can be
+ * scanned concurrently.
+ */
+public class TicketKeyExtractor {
+    private final Pattern keyPattern;
+
+    public TicketKeyExtractor(Collection<String> projectKeys) {
+        String prefixes = projectKeys.stream().map(Pattern::quote).collect(Collectors.joining("|"));
+        this.keyPattern = Pattern.compile("(?:" + prefixes + ")-\\d+(?=[:\\] ])");
+    }
+
+    public Set<String> extract(String message) {
+        Set<String> keys = new LinkedHashSet<>();
+        Matcher matcher = keyPattern.matcher(message);
+        while (matcher.find()) {
+            keys.add(matcher.group());
+        }
+        return keys;
+    }
+
+    /**
+     * Extracts the keys of every message, on a parallel stream if requested
+     *
+     * @return the keys of each message, in the order of the messages
+     */
+    public List<Set<String>> extractAll(List<String> messages, boolean parallel) {
+        Stream<String> stream = parallel ? messages.parallelStream() : messages.stream();
+        return stream.map(this::extract).toList();
+    }
+
+    /**
+     * Adds to every ticket the commits quoting its key, in the order of the log.
+     * The keys are recorded in the CommitTable when the log is read.
+     */
+    public static void associate(CommitTable commits, List<Ticket> tickets) {
+        for (Ticket ticket : tickets) {
+            for (CommitDescriptor commit : commits.getCommitsQuoting(ticket.getKey())) {
+                ticket.addAssociatedCommit(commit);
+            }
+        }
+    }
+}
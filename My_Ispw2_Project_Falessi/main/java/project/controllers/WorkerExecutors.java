@@ -0,0 +1,84 @@
+package project.controllers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import project.models.ExecutionMode;
+import project.utils.ConstantSize;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Creates the executors of the commit pipeline according to {@link ConstantSize#EXECUTION_MODE}
+ * and limits the CPU-bound work. With virtual threads a worker blocked on I/O does not hold
+ * a platform thread, while the CK/PMD parsing still runs at most on as many threads as there are cores.
+ * The project is compiled for a release without virtual threads, so the factory is looked up by
+ * reflection: on an older JVM the mode falls back to platform threads.
+ */
+public class WorkerExecutors {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WorkerExecutors.class);
+
+    private static final Method VIRTUAL_THREAD_FACTORY = lookupVirtualThreadFactory();
+    private static final Semaphore CPU_PERMITS = new Semaphore(Runtime.getRuntime().availableProcessors());
+
+    @FunctionalInterface
+    public interface CpuTask<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    private WorkerExecutors() {
+    }
+
+    /**
+     * @return true if the configured mode is VIRTUAL_THREADS and the running JVM supports it
+     */
+    public static boolean useVirtualThreads() {
+        return ConstantSize.EXECUTION_MODE == ExecutionMode.VIRTUAL_THREADS && VIRTUAL_THREAD_FACTORY != null;
+    }
+
+    /**
+     * Executor for a pipeline stage: one virtual thread per task, or a fixed pool of platform threads
+     */
+    public static ExecutorService newStageExecutor(int platformThreads) {
+        if (useVirtualThreads()) {
+            try {
+                return (ExecutorService) VIRTUAL_THREAD_FACTORY.invoke(null);
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                LOGGER.warn("Virtual thread non disponibili, uso thread di piattaforma: {}", e.getMessage());
+            }
+        }
+        return Executors.newFixedThreadPool(platformThreads);
+    }
+
+    /**
+     * Runs a CPU-bound task holding one of the permits, one per core
+     */
+    public static <T, E extends Exception> T onCpu(CpuTask<T, E> task) throws E {
+        try {
+            CPU_PERMITS.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProcessingInterruptedException("Attesa di un permesso CPU interrotta", e);
+        }
+        try {
+            return task.call();
+        } finally {
+            CPU_PERMITS.release();
+        }
+    }
+
+    private static Method lookupVirtualThreadFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            if (ConstantSize.EXECUTION_MODE == ExecutionMode.VIRTUAL_THREADS) {
+                LOGGER.warn("La JVM {} non supporta i virtual thread, uso thread di piattaforma",
+                        System.getProperty("java.version"));
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package project.controllers;
+
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheCheckout;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.stream.Stream;
+
+/**
+ * Pool of lightweight working copies of the analyzed repository, for the analyses that
+ * need a real checked-out tree. Every slot is a small repository whose object database
+ * points to the one of the original clone through {@code objects/info/alternates}, so no
+ * object is copied. A worker leases a slot, checks out its commit there and gives it back:
+ * checkouts run in parallel and the shared worktree is never cleaned or reset.
+ * Closing the pool closes the slot repositories and deletes their directories.
+ */
+public class WorktreePool implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WorktreePool.class);
+
+    private final Path root;
+    private final BlockingQueue<Slot> freeSlots;
+    private final List<Slot> allSlots;
+
+    public WorktreePool(Repository source, Path root, int size) throws IOException {
+        this.root = root;
+        Path sourceObjects = source.getDirectory().toPath().resolve("objects").toAbsolutePath();
+        this.freeSlots = new ArrayBlockingQueue<>(size);
+        Slot[] slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot(root.resolve("slot_" + i), sourceObjects);
+            freeSlots.add(slots[i]);
+        }
+        this.allSlots = List.of(slots);
+        LOGGER.info("Worktree pool creato in {} con {} slot", root, size);
+    }
+
+    /**
+     * Waits for a free slot. The lease must be closed to give the slot back to the pool.
+     */
+    public Lease acquire() throws InterruptedException {
+        return new Lease(freeSlots.take());
+    }
+
+    @Override
+    public void close() {
+        for (Slot slot : allSlots) {
+            slot.repository.close();
+        }
+        try (Stream<Path> walk = Files.walk(root)) {
+            for (Path path : walk.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Impossibile eliminare le copie di lavoro in {}: {}", root, e.getMessage());
+        }
+    }
+
+    /**
+     * Exclusive use of one working copy of the pool
+     */
+    public final class Lease implements AutoCloseable {
+        private final Slot slot;
+        private boolean released;
+
+        private Lease(Slot slot) {
+            this.slot = slot;
+        }
+
+        /**
+         * Checks out the commit in the leased working copy, updating only the files that differ
+         * from the previous checkout of the slot
+         *
+         * @return the root of the checked-out tree
+         */
+        public Path checkout(ObjectId commit) throws IOException {
+            slot.checkout(commit);
+            return slot.workTree;
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                freeSlots.add(slot);
+            }
+        }
+    }
+
+    private static final class Slot {
+        private final Path workTree;
+        private final Repository repository;
+        // tree currently checked out in the slot, null before the first checkout
+        private ObjectId checkedOutTree;
+
+        private Slot(Path workTree, Path sourceObjects) throws IOException {
+            this.workTree = workTree;
+            Path gitDir = workTree.resolve(Constants.DOT_GIT);
+            boolean exists = Files.exists(gitDir);
+            this.repository = new FileRepositoryBuilder()
+                    .setGitDir(gitDir.toFile())
+                    .setWorkTree(workTree.toFile())
+                    .build();
+            if (!exists) {
+                repository.create(false);
+            }
+            Path alternates = gitDir.resolve("objects").resolve("info").resolve("alternates");
+            Files.createDirectories(alternates.getParent());
+            Files.write(alternates, (sourceObjects.toString() + "\n").getBytes(StandardCharsets.UTF_8));
+            if (exists) {
+                // uno slot lasciato da un'esecuzione precedente viene ripulito alla prima checkout
+                clear();
+            }
+        }
+
+        private void checkout(ObjectId commit) throws IOException {
+            try (RevWalk revWalk = new RevWalk(repository)) {
+                RevCommit target = revWalk.parseCommit(commit);
+                try {
+                    checkoutTree(target);
+                } catch (IOException e) {
+                    LOGGER.warn("Checkout incrementale fallita in {}, lo slot viene ricreato: {}", workTree, e.getMessage());
+                    clear();
+                    checkoutTree(target);
+                }
+                RefUpdate refUpdate = repository.updateRef(Constants.HEAD, true);
+                refUpdate.setNewObjectId(target);
+                refUpdate.forceUpdate();
+            }
+        }
+
+        private void checkoutTree(RevCommit target) throws IOException {
+            DirCache dirCache = repository.lockDirCache();
+            DirCacheCheckout checkout = checkedOutTree == null
+                    ? new DirCacheCheckout(repository, dirCache, target.getTree())
+                    : new DirCacheCheckout(repository, checkedOutTree, dirCache, target.getTree());
+            checkout.setFailOnConflict(false);
+            checkout.checkout();
+            checkedOutTree = target.getTree().copy();
+        }
+
+        // elimina tutti i file del working tree e l'indice, mantenendo la directory .git
+        private void clear() throws IOException {
+            checkedOutTree = null;
+            Path gitDir = workTree.resolve(Constants.DOT_GIT);
+            Files.deleteIfExists(gitDir.resolve("index"));
+            try (Stream<Path> walk = Files.walk(workTree)) {
+                List<Path> paths = walk.filter(path -> !path.startsWith(gitDir) && !path.equals(workTree))
+                        .sorted(Comparator.reverseOrder())
+                        .toList();
+                for (Path path : paths) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+    }
+}
@@ -1,12 +1,17 @@
 package project.models;
 
 
+import org.eclipse.jgit.lib.ObjectId;
+
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.function.Function;
 
 public class ClassFile {
-    private String content;
+    // il contenuto non è trattenuto: si tiene il blob e lo si legge quando serve
+    private ObjectId blobId;
+    private Function<ObjectId, String> contentLoader;
     private String path;
     private List<MethodInstance> methods;
     private List<String> authors = new ArrayList<>();
@@ -19,8 +24,9 @@ public class ClassFile {
 
         this.methods = new ArrayList<>();
     }
-    public ClassFile(String content, String path) {
-        this.content = content;
+    public ClassFile(ObjectId blobId, String path, Function<ObjectId, String> contentLoader) {
+        this.blobId = blobId.copy();
+        this.contentLoader = contentLoader;
         this.path = path;
         this.methods = new ArrayList<>();
     }
@@ -54,8 +60,15 @@ public class ClassFile {
         return methods;
     }
 
+    public ObjectId getBlobId() {
+        return blobId;
+    }
+
+    /**
+     * @return the source of the class, loaded from its blob; null for a class without blob
+     */
     public String getContent() {
-        return content;
+        return blobId == null ? null : contentLoader.apply(blobId);
     }
 
     public String getPath() {
@@ -68,6 +81,10 @@ public class ClassFile {
 
         this.nr = this.nr + 1;
     }
+    public void addNR(int revisions){
+
+        this.nr = this.nr + revisions;
+    }
     public int getNR(){
         return this.nr;
     }
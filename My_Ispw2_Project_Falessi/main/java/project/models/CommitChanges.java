@@ -0,0 +1,39 @@
+package project.models;
+
+import java.util.List;
+
+/**
+ * Java paths changed by a commit with respect to its first parent, grouped by type of change.
+ * A renamed file is listed with its new path, a deleted one with its old path.
+ */
+public class CommitChanges {
+    public static final CommitChanges EMPTY = new CommitChanges(List.of(), List.of(), List.of(), List.of());
+
+    private final List<String> added;
+    private final List<String> modified;
+    private final List<String> deleted;
+    private final List<String> renamed;
+
+    public CommitChanges(List<String> added, List<String> modified, List<String> deleted, List<String> renamed) {
+        this.added = List.copyOf(added);
+        this.modified = List.copyOf(modified);
+        this.deleted = List.copyOf(deleted);
+        this.renamed = List.copyOf(renamed);
+    }
+
+    public List<String> getAdded() {
+        return added;
+    }
+
+    public List<String> getModified() {
+        return modified;
+    }
+
+    public List<String> getDeleted() {
+        return deleted;
+    }
+
+    public List<String> getRenamed() {
+        return renamed;
+    }
+}
@@ -0,0 +1,55 @@
+package project.models;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * What the analysis needs of a commit: id, committer time, author and tree.
+ * Unlike a RevCommit it keeps no message, identities, parents or RevWalk flags, so all the
+ * commits of a project can stay in memory for the whole run. The descriptor is itself the id
+ * of the commit, and its index is the position in the {@link CommitTable} that created it:
+ * per-commit data can be kept in arrays indexed by it instead of maps keyed by commit.
+ */
+public final class CommitDescriptor extends ObjectId {
+    private static final long serialVersionUID = 1L;
+
+    private final int index;
+    private final long commitTime;
+    private final int authorId;
+    private final ObjectId treeId;
+
+    CommitDescriptor(int index, AnyObjectId id, long commitTime, int authorId, AnyObjectId treeId) {
+        super(id);
+        this.index = index;
+        this.commitTime = commitTime;
+        this.authorId = authorId;
+        this.treeId = treeId.copy();
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return the committer time in milliseconds
+     */
+    public long getCommitTime() {
+        return commitTime;
+    }
+
+    /**
+     * @return the id of the author name in the CommitTable
+     */
+    public int getAuthorId() {
+        return authorId;
+    }
+
+    public ObjectId getTreeId() {
+        return treeId;
+    }
+
+    @Override
+    public String toString() {
+        return name();
+    }
+}
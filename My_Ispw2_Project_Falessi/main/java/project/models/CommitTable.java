@@ -0,0 +1,76 @@
+package project.models;
+
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * All the commits of the repository as {@link CommitDescriptor}s, in the order of the log.
+ * The author names are stored once and referenced by id. The ticket keys quoted in the messages
+ * are recorded right after the log is read, so the messages are not kept by the table.
+ */
+public class CommitTable {
+    private final List<CommitDescriptor> commits = new ArrayList<>();
+    // nomi degli autori, l'id è la posizione nella lista
+    private final List<String> authorNames = new ArrayList<>();
+    private final Map<String, Integer> authorIds = new HashMap<>();
+    // chiave del ticket -> commit che la citano, nell'ordine del log
+    private final Map<String, List<CommitDescriptor>> commitsByTicketKey = new HashMap<>();
+
+    /**
+     * Adds a commit at the end of the table
+     */
+    public CommitDescriptor add(RevCommit commit) {
+        int authorId = authorIds.computeIfAbsent(commit.getAuthorIdent().getName(), name -> {
+            authorNames.add(name);
+            return authorNames.size() - 1;
+        });
+        CommitDescriptor descriptor = new CommitDescriptor(commits.size(), commit,
+                commit.getCommitterIdent().getWhenAsInstant().toEpochMilli(), authorId, commit.getTree());
+        commits.add(descriptor);
+        return descriptor;
+    }
+
+    /**
+     * Records the ticket keys quoted by each commit; called in the order of the log,
+     * so the commits of every key stay in that order
+     *
+     * @param ticketKeys the keys of the message of every commit, by commit index
+     */
+    public void addTicketKeys(List<? extends Collection<String>> ticketKeys) {
+        for (int i = 0; i < ticketKeys.size(); i++) {
+            CommitDescriptor descriptor = commits.get(i);
+            for (String key : ticketKeys.get(i)) {
+                commitsByTicketKey.computeIfAbsent(key, k -> new ArrayList<>()).add(descriptor);
+            }
+        }
+    }
+
+    public int size() {
+        return commits.size();
+    }
+
+    public CommitDescriptor get(int index) {
+        return commits.get(index);
+    }
+
+    public List<CommitDescriptor> getCommits() {
+        return Collections.unmodifiableList(commits);
+    }
+
+    public String getAuthorName(int authorId) {
+        return authorNames.get(authorId);
+    }
+
+    /**
+     * @return the commits whose message quotes the ticket key, in the order of the log
+     */
+    public List<CommitDescriptor> getCommitsQuoting(String ticketKey) {
+        return commitsByTicketKey.getOrDefault(ticketKey, Collections.emptyList());
+    }
+}
@@ -0,0 +1,11 @@
+package project.models;
+
+/**
+ * Which threads run the reading and analysis stages of the commit pipeline.
+ */
+public enum ExecutionMode {
+    // fixed pools of platform threads, sized on cores and memory
+    PLATFORM_THREADS,
+    // one virtual thread per worker (Java 21+), CPU-heavy parsing limited by a semaphore
+    VIRTUAL_THREADS
+}
@@ -0,0 +1,16 @@
+package project.models;
+
+/**
+ * How the sources of a commit are materialized before the CK/PMD analysis.
+ */
+public enum MaterializationMode {
+    // checkout on the single shared worktree, serialized by a lock
+    SHARED_WORKTREE,
+    // blobs read straight from the object database, no worktree involved
+    OBJECT_DATABASE,
+    // blobs kept in memory and handed to CK/PMD as sources, nothing written to disk;
+    // every file is parsed alone, so the coupling metrics (fanin/fanout) differ from the other modes
+    IN_MEMORY,
+    // checkout on a working copy leased from a pool, no global lock; CK/PMD read the files from the copy
+    WORKTREE_POOL
+}
@@ -91,6 +91,13 @@ public class MethodInstance {
         this.className = expectedPath;
     }
 
+    /**
+     * Imposta il percorso della classe già convertito, senza la conversione fatta da setClassName
+     */
+    public void setClassPath(String classPath) {
+        this.className = classPath;
+    }
+
     public String getMethodName() {
         return methodName;
     }
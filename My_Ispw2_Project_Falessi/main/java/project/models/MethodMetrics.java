@@ -0,0 +1,85 @@
+package project.models;
+
+/**
+ * CK and smell metrics of a method, as computed on a single version (blob) of its file.
+ * Unlike MethodInstance it carries nothing that depends on the release, so it can be
+ * reused by every commit that contains the same blob.
+ */
+public class MethodMetrics {
+    // number of numeric metrics, the length of values()
+    public static final int VALUE_COUNT = 9;
+
+    // class name as reported by CK (dotted), used to find the ClassFile of the release
+    private final String ckClassName;
+    private final String qualifiedMethodName;
+    private final String methodName;
+
+    private final int loc;
+    private final int wmc;
+    private final int qtyAssigment;
+    private final int qtyMathOperations;
+    private final int qtyTryCatch;
+    private final int qtyReturn;
+    private final int fanin;
+    private final int fanout;
+    private final int nSmells;
+
+    public MethodMetrics(String ckClassName, String qualifiedMethodName, String methodName, int[] values) {
+        this.ckClassName = ckClassName;
+        this.qualifiedMethodName = qualifiedMethodName;
+        this.methodName = methodName;
+        this.loc = values[0];
+        this.wmc = values[1];
+        this.qtyAssigment = values[2];
+        this.qtyMathOperations = values[3];
+        this.qtyTryCatch = values[4];
+        this.qtyReturn = values[5];
+        this.fanin = values[6];
+        this.fanout = values[7];
+        this.nSmells = values[8];
+    }
+
+    /**
+     * @return the numeric metrics in the order accepted by the constructor
+     */
+    public int[] values() {
+        return new int[]{loc, wmc, qtyAssigment, qtyMathOperations, qtyTryCatch, qtyReturn, fanin, fanout, nSmells};
+    }
+
+    /**
+     * Builds a new MethodInstance filled with these metrics; release, class file metrics
+     * and buggyness are left to the caller.
+     */
+    public MethodInstance toMethodInstance() {
+        MethodInstance methodInstance = new MethodInstance();
+        methodInstance.setFilePath(qualifiedMethodName);
+        methodInstance.setClassName(ckClassName);
+        methodInstance.setMethodName(methodName);
+        methodInstance.setLoc(loc);
+        methodInstance.setWmc(wmc);
+        methodInstance.setQtyAssigment(qtyAssigment);
+        methodInstance.setQtyMathOperations(qtyMathOperations);
+        methodInstance.setQtyTryCatch(qtyTryCatch);
+        methodInstance.setQtyReturn(qtyReturn);
+        methodInstance.setFanin(fanin);
+        methodInstance.setFanout(fanout);
+        methodInstance.setnSmells(nSmells);
+        return methodInstance;
+    }
+
+    public String getCkClassName() {
+        return ckClassName;
+    }
+
+    public String getQualifiedMethodName() {
+        return qualifiedMethodName;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    public int getnSmells() {
+        return nSmells;
+    }
+}
@@ -1,8 +1,8 @@
 package project.models;
 
-import org.eclipse.jgit.revwalk.RevCommit;
-
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class Release {
 
@@ -12,13 +12,16 @@ public class Release {
 	private double currentProportion;
 
 	private List<Ticket> allReleaseTicket;
-	private List<RevCommit> allReleaseCommits;
-	private RevCommit lastCommitPreRelease;
+	private List<CommitDescriptor> allReleaseCommits;
+	private CommitDescriptor lastCommitPreRelease;
 
 	private List<MethodInstance> releaseAllMethods;
 	private Map<String, ClassFile> classFileMap;
 	private List<ClassFile> releaseAllClass;
 
+	// risultati di findClassFileByApproxName, svuotati quando cambia classFileMap
+	private final ConcurrentMap<String, Optional<ClassFile>> approxClassIndex = new ConcurrentHashMap<>();
+
 	public Release(int id, String name, Date date) {
 		this.id = id;
 		this.name = name;
@@ -70,25 +73,25 @@ public class Release {
 		this.currentProportion = proportion;
 	}
 
-	public void setLastCommitPreRelease(RevCommit commit) {
+	public void setLastCommitPreRelease(CommitDescriptor commit) {
 		this.lastCommitPreRelease = commit;
 	}
 
-	public RevCommit getLastCommitPreRelease() {
+	public CommitDescriptor getLastCommitPreRelease() {
 		return this.lastCommitPreRelease;
 	}
 
-	public void addCommitToReleaseList(RevCommit commit) {
-		this.allReleaseCommits.add(commit);
+	public void setAllReleaseCommits(List<CommitDescriptor> commits) {
+		this.allReleaseCommits = commits;
 	}
 
-	public List<RevCommit> getAllReleaseCommits() {
+	public List<CommitDescriptor> getAllReleaseCommits() {
 		return this.allReleaseCommits;
 	}
 
 
 
-	public RevCommit getLastCommit() {
+	public CommitDescriptor getLastCommit() {
 		if (!this.allReleaseCommits.isEmpty()) {
 			return this.allReleaseCommits.get(this.allReleaseCommits.size() - 1);
 		}
@@ -107,56 +110,10 @@ public class Release {
 		this.releaseAllMethods = allMethods;
 	}
 
-	public MethodInstance getMethodByPathAndName(String classPath, String methodName) {
-		for (MethodInstance method : releaseAllMethods) {
-			if (method.getFilePath().equals(classPath) && method.getMethodName().equals(methodName)) {
-				return method;
-			}
-		}
-		return null;
-	}
-
-
-	public MethodInstance getMethodByIdentifier(String identifier) {
-		for (MethodInstance method : releaseAllMethods) {
-			if (method.getFullSignature().equals(identifier)) {
-				return method;
-			}
-		}
-		return null;
-	}
-
-	public MethodInstance getMethodBySignature(String fullSignature) {
-		for (MethodInstance method : releaseAllMethods) {
-			if (method.getFullSignature().equals(fullSignature)) {
-				return method;
-			}
-		}
-		return null;
-	}
-
-	public MethodInstance getMethodByPath(String file) {
-		for (MethodInstance method : releaseAllMethods) {
-			if (method.getFilePath().equals(file)) {
-				return method;
-			}
-		}
-		return null;
-	}
-
-	public List<MethodInstance> getMethodInstancesByFilePath(String path) {
-		List<MethodInstance> result = new ArrayList<>();
-		for (MethodInstance method : releaseAllMethods) {
-			if (method.getFilePath().equals(path)) {
-				result.add(method);
-			}
-		}
-		return result;
-	}
-
 	public void addClassFile(ClassFile classFile) {
 
 		this.classFileMap.put(classFile.getPath(), classFile);
+		this.approxClassIndex.clear();
 	}
 
 	public ClassFile getClassFileByPath(String path) {
@@ -183,7 +140,16 @@ public class Release {
 		return classNameOnly;
 	}
 
+	/**
+	 * Restituisce la prima classe il cui percorso contiene il nome normalizzato.
+	 * La ricerca lineare viene fatta una sola volta per nome, poi il risultato è preso dall'indice.
+	 */
 	public  ClassFile findClassFileByApproxName(String className) {
+		return approxClassIndex.computeIfAbsent(className, name -> Optional.ofNullable(scanClassFileByApproxName(name)))
+				.orElse(null);
+	}
+
+	private ClassFile scanClassFileByApproxName(String className) {
 		String normalizedTarget = normalizeToModuleAndClass(className);
 
 		for (Map.Entry<String, ClassFile> entry : classFileMap.entrySet()) {
@@ -0,0 +1,65 @@
+package project.models;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Begin lines of the PMD violations found in a single source file, kept sorted so that
+ * the number of smells inside a method is a range query instead of a new analysis.
+ */
+public class SmellLineIndex {
+
+    public static final SmellLineIndex EMPTY = new SmellLineIndex(new int[0], false);
+    // returned when PMD could not analyze the file: every query answers -1 as before
+    public static final SmellLineIndex FAILED = new SmellLineIndex(new int[0], true);
+
+    private final int[] lines;
+    private final boolean failed;
+
+    private SmellLineIndex(int[] lines, boolean failed) {
+        this.lines = lines;
+        this.failed = failed;
+    }
+
+    public static SmellLineIndex of(List<Integer> violationLines) {
+        int[] sorted = new int[violationLines.size()];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = violationLines.get(i);
+        }
+        Arrays.sort(sorted);
+        return new SmellLineIndex(sorted, false);
+    }
+
+    /**
+     * @return the number of violations starting between startLine and endLine (both included),
+     * or -1 if the file could not be analyzed
+     */
+    public int countBetween(int startLine, int endLine) {
+        if (failed) {
+            return -1;
+        }
+        if (endLine < startLine) {
+            return 0;
+        }
+        return lowerBound(endLine + 1) - lowerBound(startLine);
+    }
+
+    public int size() {
+        return lines.length;
+    }
+
+    // first position whose line is >= line
+    private int lowerBound(int line) {
+        int low = 0;
+        int high = lines.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (lines[mid] < line) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
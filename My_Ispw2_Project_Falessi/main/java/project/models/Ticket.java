@@ -1,9 +1,8 @@
 package project.models;
 
 
-import org.eclipse.jgit.revwalk.RevCommit;
-
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 
 public class Ticket {
@@ -13,7 +12,9 @@ public class Ticket {
 	private Release ov;
 	private Release fv;
 	private Release calculatedIv;
-	private List<RevCommit> associatedCommits;
+	private List<CommitDescriptor> associatedCommits;
+	// indici dei commit della lista, per controllare i duplicati senza scorrerla
+	private BitSet associatedCommitIndexes;
 
 	public Ticket(String key, Release ov, Release fv, Release av) {
 		this.key = key;
@@ -21,6 +22,7 @@ public class Ticket {
 		this.ov = ov;
 		this.fv = fv;
 		this.associatedCommits = new ArrayList<>();
+		this.associatedCommitIndexes = new BitSet();
 
 	}
 
@@ -35,14 +37,24 @@ public class Ticket {
 
 	}
 
-	public List<RevCommit> getAssociatedCommits(){
+	public List<CommitDescriptor> getAssociatedCommits(){
 
 		return this.associatedCommits;
 	}
 
-	public void addAssociatedCommit(RevCommit commit){
+	/**
+	 * Adds the commit if it is not associated yet
+	 *
+	 * @return true if the commit has been added
+	 */
+	public boolean addAssociatedCommit(CommitDescriptor commit){
 
+		if (this.associatedCommitIndexes.get(commit.getIndex())) {
+			return false;
+		}
+		this.associatedCommitIndexes.set(commit.getIndex());
 		this.associatedCommits.add(commit);
+		return true;
 	}
 	/**
 	 * @return the key
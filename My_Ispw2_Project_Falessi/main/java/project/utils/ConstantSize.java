@@ -1,5 +1,8 @@
 package project.utils;
 
+import project.models.ExecutionMode;
+import project.models.MaterializationMode;
+
 public class ConstantSize {
 
 
@@ -17,10 +20,61 @@ public class ConstantSize {
     public static final int FREQUENCY_WRITE_CACHE =20;
     public static final int FREQUENCY_WRITE_CSV =100;
     public static final int NUM_THREADS =6;
+    // Heap reserved to each worker thread; the commit results live off heap in MethodMetricsStore
+    public static final int MEMORY_PER_THREAD_MB = 256;
 
 
 
     // Maximum number of classes per commit
     public static final int MAX_CLASSES_PER_COMMIT = 50;
 
+    // Read cached commits on demand instead of loading the whole commit cache at startup
+    public static final boolean LAZY_COMMIT_CACHE = true;
+
+    // Threads of the pipeline stage that reads the commit snapshots, and capacity of the queues between stages
+    public static final int PIPELINE_READER_THREADS = 2;
+    public static final int PIPELINE_QUEUE_SIZE = 2 * NUM_THREADS;
+
+    // Threads running the pipeline; with virtual threads the analyzers can be more than the cores,
+    // up to the commits in flight allowed by the memory
+    public static final ExecutionMode EXECUTION_MODE = ExecutionMode.VIRTUAL_THREADS;
+    public static final int VIRTUAL_THREAD_ANALYZERS = 64;
+
+    // Adaptive concurrency: sampling period, heap fraction and GC time fraction that lower or raise the commits in flight
+    public static final long CONCURRENCY_SAMPLE_MS = 500;
+    public static final double HEAP_HIGH_WATERMARK = 0.85;
+    public static final double HEAP_LOW_WATERMARK = 0.60;
+    public static final double GC_TIME_HIGH_WATERMARK = 0.20;
+    public static final double GC_TIME_LOW_WATERMARK = 0.05;
+
+    // Threads computing the commit diffs for the history metrics and the buggyness
+    public static final int DIFF_THREADS = NUM_THREADS;
+
+    // Threads used by PMD inside the batch analysis of one commit snapshot
+    public static final int PMD_THREADS = 2;
+
+    // Assign the commits to the releases on a parallel stream
+    public static final boolean PARALLEL_COMMIT_BUCKETING = true;
+
+    // Scan the commit messages for ticket keys on a parallel stream
+    public static final boolean PARALLEL_KEY_EXTRACTION = true;
+
+    // Jira search: issues per page, pages fetched in parallel and validity of the cached responses
+    public static final int JIRA_PAGE_SIZE = 1000;
+    public static final int JIRA_FETCH_THREADS = 4;
+    public static final long JIRA_CACHE_TTL_HOURS = 24;
+
+    // Releases whose classes and methods are extracted concurrently
+    public static final int INVENTORY_THREADS = NUM_THREADS;
+
+    // Class sources kept in memory; the ClassFiles of the releases load the others from their blob
+    public static final int CLASS_CONTENT_CACHE_SIZE = 512;
+
+    // Blobs whose metrics are kept in memory after being read from the blob cache file
+    public static final int BLOB_METRICS_CACHE_SIZE = 4096;
+
+    // How commit snapshots are produced for the metrics calculation; IN_MEMORY does not resolve the types
+    // declared in other files, so its fanin/fanout differ from the directory run of CK
+    public static final MaterializationMode MATERIALIZATION_MODE = MaterializationMode.OBJECT_DATABASE;
+
 }
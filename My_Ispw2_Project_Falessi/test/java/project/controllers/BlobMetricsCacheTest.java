@@ -0,0 +1,138 @@
+package project.controllers;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import project.models.MethodMetrics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BlobMetricsCacheTest {
+    private static final ObjectId FIRST = ObjectId.fromString("1111111111111111111111111111111111111111");
+    private static final ObjectId SECOND = ObjectId.fromString("2222222222222222222222222222222222222222");
+    private static final ObjectId THIRD = ObjectId.fromString("3333333333333333333333333333333333333333");
+
+    @TempDir
+    Path cacheDir;
+
+    @Test
+    void roundTripReadsTheMetricsFromTheFile() {
+        Path cacheFile = cacheDir.resolve("project_blob_cache.bin");
+        BlobMetricsCache cache = new BlobMetricsCache(cacheFile, 1);
+        cache.put(FIRST, List.of(metrics("m", 1), metrics("n", 2)));
+        cache.put(SECOND, List.of());
+        // i blob non salvati sono già visibili
+        assertEquals(2, cache.get(FIRST).size());
+        cache.save();
+
+        // con una sola voce in memoria le letture alternate passano dal file
+        BlobMetricsCache reopened = new BlobMetricsCache(cacheFile, 1);
+        assertEquals(2, reopened.size());
+        for (int i = 0; i < 3; i++) {
+            assertSameMetrics(List.of(metrics("m", 1), metrics("n", 2)), reopened.get(FIRST));
+            assertTrue(reopened.get(SECOND).isEmpty());
+        }
+        assertNull(reopened.get(THIRD));
+        assertEquals(Map.of("C.java", THIRD), reopened.missing(Map.of("A.java", FIRST, "C.java", THIRD)));
+    }
+
+    @Test
+    void saveAppendsOnlyTheNewBlobs() throws IOException {
+        Path cacheFile = cacheDir.resolve("project_blob_cache.bin");
+        BlobMetricsCache cache = new BlobMetricsCache(cacheFile, 16);
+        cache.put(FIRST, List.of(metrics("m", 1)));
+        cache.save();
+        long size = Files.size(cacheFile);
+
+        cache.put(FIRST, List.of(metrics("changed", 5)));
+        cache.save();
+        assertEquals(size, Files.size(cacheFile));
+
+        cache.put(SECOND, List.of(metrics("n", 2)));
+        cache.save();
+        BlobMetricsCache reopened = new BlobMetricsCache(cacheFile, 16);
+        assertSameMetrics(List.of(metrics("m", 1)), reopened.get(FIRST));
+        assertSameMetrics(List.of(metrics("n", 2)), reopened.get(SECOND));
+    }
+
+    @Test
+    void tornRecordIsTruncatedOnLoad() throws IOException {
+        Path cacheFile = cacheDir.resolve("project_blob_cache.bin");
+        BlobMetricsCache cache = new BlobMetricsCache(cacheFile, 16);
+        cache.put(FIRST, List.of(metrics("m", 1)));
+        cache.save();
+        long validSize = Files.size(cacheFile);
+        cache.put(SECOND, List.of(metrics("n", 2)));
+        cache.save();
+
+        try (FileChannel channel = FileChannel.open(cacheFile, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(cacheFile) - 3);
+        }
+
+        BlobMetricsCache reopened = new BlobMetricsCache(cacheFile, 16);
+        assertEquals(1, reopened.size());
+        assertNull(reopened.get(SECOND));
+        assertEquals(validSize, Files.size(cacheFile));
+    }
+
+    @Test
+    void recordWithTooFewValuesIsTruncatedOnLoad() throws IOException {
+        Path cacheFile = cacheDir.resolve("project_blob_cache.bin");
+        BlobMetricsCache cache = new BlobMetricsCache(cacheFile, 16);
+        cache.put(FIRST, List.of(metrics("m", 1)));
+        cache.save();
+        long validSize = Files.size(cacheFile);
+
+        // un metodo con 3 metriche invece di MethodMetrics.VALUE_COUNT
+        ByteBuffer payload = ByteBuffer.allocate(64);
+        payload.putInt(1);
+        for (String name : new String[]{"A", "A.m()", "m"}) {
+            payload.putShort((short) name.length()).put(name.getBytes());
+        }
+        payload.putInt(3).putInt(1).putInt(2).putInt(3);
+        payload.flip();
+        byte[] rawId = new byte[20];
+        SECOND.copyRawTo(rawId, 0);
+        ByteBuffer record = ByteBuffer.allocate(rawId.length + Integer.BYTES + payload.remaining());
+        record.put(rawId).putInt(payload.remaining()).put(payload);
+        record.flip();
+        try (FileChannel channel = FileChannel.open(cacheFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(record);
+        }
+
+        BlobMetricsCache reopened = new BlobMetricsCache(cacheFile, 16);
+        assertEquals(1, reopened.size());
+        assertNull(reopened.get(SECOND));
+        assertEquals(validSize, Files.size(cacheFile));
+    }
+
+    private static MethodMetrics metrics(String methodName, int base) {
+        int[] values = new int[MethodMetrics.VALUE_COUNT];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = base + i;
+        }
+        return new MethodMetrics("p.A", "p.A." + methodName + "/0", methodName, values);
+    }
+
+    private static void assertSameMetrics(List<MethodMetrics> expected, List<MethodMetrics> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getCkClassName(), actual.get(i).getCkClassName());
+            assertEquals(expected.get(i).getQualifiedMethodName(), actual.get(i).getQualifiedMethodName());
+            assertEquals(expected.get(i).getMethodName(), actual.get(i).getMethodName());
+            assertArrayEquals(expected.get(i).values(), actual.get(i).values());
+        }
+    }
+}
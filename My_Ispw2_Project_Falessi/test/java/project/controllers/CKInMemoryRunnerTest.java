@@ -0,0 +1,109 @@
+package project.controllers;
+
+import com.github.mauricioaniche.ck.CK;
+import com.github.mauricioaniche.ck.CKMethodResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Compares the in-memory CK run with the directory run of CK on the same sources
+ */
+class CKInMemoryRunnerTest {
+    private static final String A = """
+            package p;
+
+            import java.util.ArrayList;
+            import java.util.List;
+
+            public class A {
+                private final List<String> names = new ArrayList<>();
+
+                public int run(int x) {
+                    int y = helper(x) + 1;
+                    names.add(String.valueOf(y));
+                    return y > 3 ? y : helper(y);
+                }
+
+                int helper(int v) {
+                    try {
+                        return Math.abs(v) * 2;
+                    } catch (RuntimeException e) {
+                        return 0;
+                    }
+                }
+            }
+            """;
+    private static final String B = """
+            package p;
+
+            public class B {
+                public int call(A a) {
+                    int total = a.run(1);
+                    total += a.helper(2);
+                    return total;
+                }
+            }
+            """;
+
+    @TempDir
+    Path sourceDir;
+
+    @Test
+    void singleFileMatchesDirectoryRun() throws IOException {
+        Map<String, String> sources = Map.of("p/A.java", A);
+        Function<CKMethodResult, String> metrics = method -> binding(method) + " fanin=" + method.getFanin()
+                + " fanout=" + method.getFanout();
+
+        Map<String, String> expected = directoryRun(sources, metrics);
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, inMemoryRun(sources, metrics));
+    }
+
+    @Test
+    void bindingIndependentMetricsMatchDirectoryRun() throws IOException {
+        Map<String, String> sources = new LinkedHashMap<>();
+        sources.put("p/A.java", A);
+        sources.put("p/B.java", B);
+
+        // fanin e fanout dipendono dai tipi degli altri file, che in memoria non sono risolti
+        Map<String, String> expected = directoryRun(sources, CKInMemoryRunnerTest::binding);
+        assertEquals(3, expected.size());
+        assertEquals(expected, inMemoryRun(sources, CKInMemoryRunnerTest::binding));
+    }
+
+    private static String binding(CKMethodResult method) {
+        return "loc=" + method.getLoc() + " wmc=" + method.getWmc() + " assignments=" + method.getAssignmentsQty()
+                + " math=" + method.getMathOperationsQty() + " tryCatch=" + method.getTryCatchQty()
+                + " return=" + method.getReturnQty();
+    }
+
+    private Map<String, String> directoryRun(Map<String, String> sources, Function<CKMethodResult, String> metrics) throws IOException {
+        for (Map.Entry<String, String> source : sources.entrySet()) {
+            Path file = sourceDir.resolve(source.getKey());
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, source.getValue());
+        }
+        Map<String, String> results = new TreeMap<>();
+        new CK().calculate(sourceDir, classResult -> classResult.getMethods()
+                .forEach(method -> results.put(method.getQualifiedMethodName(), metrics.apply(method))));
+        return results;
+    }
+
+    private static Map<String, String> inMemoryRun(Map<String, String> sources, Function<CKMethodResult, String> metrics) {
+        Map<String, String> results = new TreeMap<>();
+        CKInMemoryRunner.calculate(sources, classResult -> classResult.getMethods()
+                .forEach(method -> results.put(method.getQualifiedMethodName(), metrics.apply(method))));
+        return results;
+    }
+}
@@ -0,0 +1,173 @@
+package project.controllers;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import project.models.MethodInstance;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CommitCacheStoreTest {
+    private static final String FIRST = "1111111111111111111111111111111111111111";
+    private static final String SECOND = "2222222222222222222222222222222222222222";
+    private static final String THIRD = "3333333333333333333333333333333333333333";
+
+    @TempDir
+    Path cacheDir;
+
+    @Test
+    void roundTrip() throws IOException {
+        Map<String, Map<String, MethodInstance>> commits = new LinkedHashMap<>();
+        commits.put(FIRST, methods("A", 3));
+        commits.put(SECOND, methods("B", 2));
+        commits.put(THIRD, new HashMap<>());
+
+        CommitCacheStore store = new CommitCacheStore(cacheDir, "Project");
+        assertFalse(store.exists());
+        assertEquals(3, store.append(commits));
+        assertTrue(store.exists());
+
+        // un nuovo store legge tutto dai file
+        CommitCacheStore reopened = new CommitCacheStore(cacheDir, "Project");
+        assertEquals(Set.of(FIRST, SECOND, THIRD), reopened.commits());
+        for (Map.Entry<String, Map<String, MethodInstance>> commit : commits.entrySet()) {
+            assertSameMethods(commit.getValue(), reopened.read(commit.getKey()));
+        }
+        assertNull(reopened.read("4444444444444444444444444444444444444444"));
+    }
+
+    @Test
+    void appendSkipsStoredCommits() throws IOException {
+        CommitCacheStore store = new CommitCacheStore(cacheDir, "project");
+        assertEquals(1, store.append(Map.of(FIRST, methods("A", 2))));
+        long logSize = Files.size(logPath());
+
+        Map<String, Map<String, MethodInstance>> commits = new LinkedHashMap<>();
+        commits.put(FIRST, methods("changed", 5));
+        commits.put(SECOND, methods("B", 1));
+        assertEquals(1, store.append(commits));
+        assertEquals(0, store.append(commits));
+
+        CommitCacheStore reopened = new CommitCacheStore(cacheDir, "project");
+        // il commit già salvato non viene riscritto
+        assertSameMethods(methods("A", 2), reopened.read(FIRST));
+        assertSameMethods(methods("B", 1), reopened.read(SECOND));
+        assertTrue(Files.size(logPath()) > logSize);
+    }
+
+    @Test
+    void loadReadsOnlyTheSelectedCommits() throws IOException {
+        CommitCacheStore store = new CommitCacheStore(cacheDir, "project");
+        Map<String, Map<String, MethodInstance>> commits = new LinkedHashMap<>();
+        commits.put(FIRST, methods("A", 1));
+        commits.put(SECOND, methods("B", 1));
+        commits.put(THIRD, methods("C", 1));
+        store.append(commits);
+
+        Map<String, Map<String, MethodInstance>> target = new HashMap<>();
+        assertEquals(2, new CommitCacheStore(cacheDir, "project").load(target, Set.of(FIRST, THIRD)));
+        assertEquals(Set.of(FIRST, THIRD), target.keySet());
+
+        target.clear();
+        assertEquals(3, new CommitCacheStore(cacheDir, "project").load(target, null));
+        assertEquals(commits.keySet(), target.keySet());
+    }
+
+    @Test
+    void tornIndexEntryIsTruncatedOnOpen() throws IOException {
+        CommitCacheStore store = new CommitCacheStore(cacheDir, "project");
+        store.append(Map.of(FIRST, methods("A", 2)));
+        store.append(Map.of(SECOND, methods("B", 2)));
+        long indexSize = Files.size(store.getIndexPath());
+
+        // l'ultima voce dell'indice è scritta solo a metà
+        truncate(store.getIndexPath(), indexSize - 5);
+
+        CommitCacheStore reopened = new CommitCacheStore(cacheDir, "project");
+        assertEquals(Set.of(FIRST), reopened.commits());
+        assertSameMethods(methods("A", 2), reopened.read(FIRST));
+        assertEquals(indexSize / 2, Files.size(store.getIndexPath()));
+
+        // il commit perso può essere salvato di nuovo
+        assertEquals(1, reopened.append(Map.of(SECOND, methods("B", 2))));
+        assertSameMethods(methods("B", 2), new CommitCacheStore(cacheDir, "project").read(SECOND));
+    }
+
+    @Test
+    void indexEntryPointingPastTheLogIsTruncatedOnOpen() throws IOException {
+        CommitCacheStore store = new CommitCacheStore(cacheDir, "project");
+        store.append(Map.of(FIRST, methods("A", 2)));
+        long logSize = Files.size(logPath());
+        store.append(Map.of(SECOND, methods("B", 2)));
+
+        // il record del secondo commit non è arrivato su disco per intero
+        truncate(logPath(), logSize + 3);
+
+        CommitCacheStore reopened = new CommitCacheStore(cacheDir, "project");
+        assertEquals(Set.of(FIRST), reopened.commits());
+        assertEquals(logSize, Files.size(logPath()));
+        assertSameMethods(methods("A", 2), reopened.read(FIRST));
+    }
+
+    private Path logPath() {
+        return cacheDir.resolve("project_commit_cache.log");
+    }
+
+    private static void truncate(Path path, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        }
+    }
+
+    private static Map<String, MethodInstance> methods(String prefix, int count) {
+        Map<String, MethodInstance> methods = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            MethodInstance method = new MethodInstance("src/" + prefix + ".java", prefix + "Method" + i, "()");
+            method.setLoc(10 + i);
+            method.setWmc(2 + i);
+            method.setQtyAssigment(i);
+            method.setQtyMathOperations(3 * i);
+            method.setQtyTryCatch(1);
+            method.setQtyReturn(i + 1);
+            method.setFanin(4);
+            method.setFanout(5 + i);
+            method.setAge(100 * i);
+            method.setnAuth(2);
+            method.setNr(7);
+            method.setnSmells(i % 2);
+            method.setBuggy(i % 2 == 0);
+            methods.put(MethodInstance.createMethodKey(method), method);
+        }
+        return methods;
+    }
+
+    private static void assertSameMethods(Map<String, MethodInstance> expected, Map<String, MethodInstance> actual) {
+        assertEquals(expected.keySet(), actual.keySet());
+        for (Map.Entry<String, MethodInstance> entry : expected.entrySet()) {
+            MethodInstance want = entry.getValue();
+            MethodInstance got = actual.get(entry.getKey());
+            assertEquals(want.getFilePath(), got.getFilePath());
+            assertEquals(want.getMethodName(), got.getMethodName());
+            assertEquals(List.of(want.getLoc(), want.getWmc(), want.getQtyAssigment(), want.getQtyMathOperations(),
+                            want.getQtyTryCatch(), want.getQtyReturn(), want.getFanin(), want.getFanout(), want.getAge(),
+                            want.getnAuth(), want.getNr(), want.getnSmells()),
+                    List.of(got.getLoc(), got.getWmc(), got.getQtyAssigment(), got.getQtyMathOperations(),
+                            got.getQtyTryCatch(), got.getQtyReturn(), got.getFanin(), got.getFanout(), got.getAge(),
+                            got.getnAuth(), got.getNr(), got.getnSmells()));
+            assertEquals(want.isBuggy(), got.isBuggy());
+        }
+    }
+}
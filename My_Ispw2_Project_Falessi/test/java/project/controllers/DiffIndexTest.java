@@ -0,0 +1,115 @@
+package project.controllers;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import project.models.CommitChanges;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class DiffIndexTest {
+    private static final ObjectId FIRST = ObjectId.fromString("1111111111111111111111111111111111111111");
+    private static final ObjectId SECOND = ObjectId.fromString("2222222222222222222222222222222222222222");
+
+    @TempDir
+    Path cacheDir;
+
+    @Test
+    void roundTrip() {
+        Path indexPath = cacheDir.resolve("project_diff_index.bin");
+        Map<ObjectId, CommitChanges> changes = new LinkedHashMap<>();
+        changes.put(FIRST, new CommitChanges(List.of("src/A.java"), List.of("src/B.java", "src/C.java"),
+                List.of("src/D.java"), List.of("src/E.java")));
+        changes.put(SECOND, CommitChanges.EMPTY);
+
+        DiffIndex index = new DiffIndex(indexPath);
+        index.append(changes);
+        assertEquals(2, index.size());
+
+        DiffIndex reopened = new DiffIndex(indexPath);
+        assertEquals(2, reopened.size());
+        assertSameChanges(changes.get(FIRST), reopened.get(FIRST));
+        assertSameChanges(CommitChanges.EMPTY, reopened.get(SECOND));
+        assertNull(reopened.get(ObjectId.zeroId()));
+    }
+
+    @Test
+    void appendSkipsIndexedCommits() throws IOException {
+        Path indexPath = cacheDir.resolve("project_diff_index.bin");
+        DiffIndex index = new DiffIndex(indexPath);
+        index.append(Map.of(FIRST, changes("src/A.java")));
+        long size = Files.size(indexPath);
+
+        index.append(Map.of(FIRST, changes("src/Other.java")));
+        assertEquals(size, Files.size(indexPath));
+        assertSameChanges(changes("src/A.java"), new DiffIndex(indexPath).get(FIRST));
+    }
+
+    @Test
+    void tornRecordIsTruncatedOnLoad() throws IOException {
+        Path indexPath = cacheDir.resolve("project_diff_index.bin");
+        DiffIndex index = new DiffIndex(indexPath);
+        index.append(Map.of(FIRST, changes("src/A.java")));
+        long validSize = Files.size(indexPath);
+        index.append(Map.of(SECOND, changes("src/B.java")));
+
+        // il secondo record è stato scritto solo in parte
+        try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(indexPath) - 3);
+        }
+
+        DiffIndex reopened = new DiffIndex(indexPath);
+        assertEquals(1, reopened.size());
+        assertSameChanges(changes("src/A.java"), reopened.get(FIRST));
+        assertNull(reopened.get(SECOND));
+        assertEquals(validSize, Files.size(indexPath));
+
+        // il commit perso viene aggiunto di nuovo in coda
+        reopened.append(Map.of(SECOND, changes("src/B.java")));
+        assertSameChanges(changes("src/B.java"), new DiffIndex(indexPath).get(SECOND));
+    }
+
+    @Test
+    void unreadableRecordIsTruncatedOnLoad() throws IOException {
+        Path indexPath = cacheDir.resolve("project_diff_index.bin");
+        new DiffIndex(indexPath).append(Map.of(FIRST, changes("src/A.java")));
+        long validSize = Files.size(indexPath);
+
+        // record completo ma con un numero di percorsi impossibile
+        byte[] rawId = new byte[20];
+        SECOND.copyRawTo(rawId, 0);
+        ByteBuffer record = ByteBuffer.allocate(rawId.length + 2 * Integer.BYTES)
+                .put(rawId).putInt(Integer.BYTES).putInt(Integer.MAX_VALUE);
+        record.flip();
+        try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(record);
+        }
+
+        DiffIndex reopened = new DiffIndex(indexPath);
+        assertEquals(1, reopened.size());
+        assertNull(reopened.get(SECOND));
+        assertEquals(validSize, Files.size(indexPath));
+    }
+
+    private static CommitChanges changes(String modified) {
+        return new CommitChanges(List.of(), List.of(modified), List.of(), List.of());
+    }
+
+    private static void assertSameChanges(CommitChanges expected, CommitChanges actual) {
+        assertEquals(expected.getAdded(), actual.getAdded());
+        assertEquals(expected.getModified(), actual.getModified());
+        assertEquals(expected.getDeleted(), actual.getDeleted());
+        assertEquals(expected.getRenamed(), actual.getRenamed());
+    }
+}
@@ -0,0 +1,93 @@
+package project.controllers;
+
+import org.json.JSONException;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JiraIssueParserTest {
+    private static final String PAGE = """
+            {
+              "expand": "schema,names",
+              "startAt": 0,
+              "maxResults": 1000,
+              "issues": [
+                {
+                  "id": "1",
+                  "key": "OPENJPA-10",
+                  "fields": {
+                    "issuetype": {"name": "Bug", "subtask": false},
+                    "summary": "query with } and ] in the text",
+                    "versions": [
+                      {"name": "1.0.0", "released": true, "releaseDate": "2007-08-28"},
+                      {"name": "2.0.0", "released": false, "releaseDate": "2010-04-22"},
+                      {"name": "1.1.0", "released": true}
+                    ],
+                    "created": "2007-09-01T10:00:00.000+0000",
+                    "resolutiondate": "2007-10-01T10:00:00.000+0000"
+                  }
+                },
+                {
+                  "key": "OPENJPA-11",
+                  "fields": {
+                    "created": "2008-01-01T10:00:00.000+0000",
+                    "resolutiondate": null
+                  }
+                },
+                {
+                  "fields": {
+                    "resolutiondate": "2008-02-01T10:00:00.000+0000",
+                    "created": "2008-01-01T10:00:00.000+0000",
+                    "versions": []
+                  },
+                  "key": "OPENJPA-12"
+                }
+              ],
+              "total": 3
+            }
+            """;
+
+    @Test
+    void readsTotalAfterTheIssues() {
+        assertEquals(3, JiraIssueParser.readTotal(PAGE));
+    }
+
+    @Test
+    void missingTotalIsMinusOne() {
+        assertEquals(-1, JiraIssueParser.readTotal("{\"startAt\": 0, \"issues\": []}"));
+    }
+
+    @Test
+    void parsesTheFieldsOfTheTickets() {
+        List<JiraIssueParser.Issue> issues = JiraIssueParser.parseIssues(new StringReader(PAGE));
+
+        assertEquals(2, issues.size());
+        JiraIssueParser.Issue first = issues.get(0);
+        assertEquals("OPENJPA-10", first.getKey());
+        assertEquals("2007-09-01T10:00:00.000+0000", first.getCreated());
+        assertEquals("2007-10-01T10:00:00.000+0000", first.getResolutionDate());
+        // solo le versioni rilasciate e con una data
+        assertEquals(List.of("2007-08-28"), first.getReleasedVersionDates());
+
+        JiraIssueParser.Issue second = issues.get(1);
+        assertEquals("OPENJPA-12", second.getKey());
+        assertTrue(second.getReleasedVersionDates().isEmpty());
+    }
+
+    @Test
+    void pageWithoutIssuesIsEmpty() {
+        assertTrue(JiraIssueParser.parseIssues(new StringReader("{\"total\": 0, \"issues\": []}")).isEmpty());
+        assertTrue(JiraIssueParser.parseIssues(new StringReader("{\"total\": 0}")).isEmpty());
+    }
+
+    @Test
+    void malformedPageIsRejected() {
+        assertThrows(JSONException.class, () -> JiraIssueParser.parseIssues(new StringReader("[]")));
+        assertThrows(JSONException.class, () -> JiraIssueParser.parseIssues(new StringReader("{\"issues\": [{\"key\" \"A-1\"}]}")));
+    }
+}
@@ -0,0 +1,173 @@
+package project.controllers;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.jupiter.api.Test;
+import project.models.CommitDescriptor;
+import project.models.CommitTable;
+import project.models.Release;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the buckets with the nested loop that used to assign the commits to the releases
+ */
+class ReleaseCommitBucketsTest {
+
+    @Test
+    void commitBeforeFirstReleaseGoesOnlyToFirstRelease() {
+        List<Release> releases = releases(100, 200, 300);
+        List<CommitDescriptor> commits = commits(50);
+
+        assertBucketsMatchNestedLoop(commits, releases);
+        assertEquals(commits, bucketsOf(commits, releases, false).commitsOf(0));
+        assertTrue(bucketsOf(commits, releases, false).commitsOf(2).isEmpty());
+    }
+
+    @Test
+    void commitBetweenReleasesGoesToNextAndLastRelease() {
+        List<Release> releases = releases(100, 200, 300, 400);
+        List<CommitDescriptor> commits = commits(150, 250, 350);
+
+        ReleaseCommitBuckets buckets = bucketsOf(commits, releases, false);
+        assertEquals(List.of(commits.get(0)), buckets.commitsOf(1));
+        assertEquals(List.of(commits.get(1)), buckets.commitsOf(2));
+        assertEquals(commits, buckets.commitsOf(3));
+        assertBucketsMatchNestedLoop(commits, releases);
+    }
+
+    @Test
+    void commitWithSameDateOfReleaseGoesOnlyToLastRelease() {
+        List<Release> releases = releases(100, 200, 300, 400);
+        List<CommitDescriptor> commits = commits(100, 200, 300);
+
+        ReleaseCommitBuckets buckets = bucketsOf(commits, releases, false);
+        assertTrue(buckets.commitsOf(0).isEmpty());
+        assertTrue(buckets.commitsOf(1).isEmpty());
+        assertTrue(buckets.commitsOf(2).isEmpty());
+        assertEquals(commits, buckets.commitsOf(3));
+        assertBucketsMatchNestedLoop(commits, releases);
+    }
+
+    @Test
+    void commitAtOrAfterLastReleaseGoesToNoRelease() {
+        List<Release> releases = releases(100, 200, 300);
+        List<CommitDescriptor> commits = commits(300, 350);
+
+        ReleaseCommitBuckets buckets = bucketsOf(commits, releases, false);
+        for (int k = 0; k < releases.size(); k++) {
+            assertTrue(buckets.commitsOf(k).isEmpty());
+        }
+        assertBucketsMatchNestedLoop(commits, releases);
+    }
+
+    @Test
+    void lastReleaseKeepsTheOrderOfTheInput() {
+        List<Release> releases = releases(100, 200, 300);
+        // commit non ordinati per data: l'ultima release li deve restituire nell'ordine di ingresso
+        List<CommitDescriptor> commits = commits(250, 150, 50, 299, 101);
+
+        assertEquals(List.of(commits.get(0), commits.get(1), commits.get(3), commits.get(4)),
+                bucketsOf(commits, releases, false).commitsOf(2));
+        assertBucketsMatchNestedLoop(commits, releases);
+    }
+
+    @Test
+    void singleReleaseCollectsOnlyOlderCommits() {
+        List<Release> releases = releases(100);
+        List<CommitDescriptor> commits = commits(50, 100, 150, 99);
+
+        assertEquals(List.of(commits.get(0), commits.get(3)), bucketsOf(commits, releases, false).commitsOf(0));
+        assertBucketsMatchNestedLoop(commits, releases);
+    }
+
+    @Test
+    void randomHistoryMatchesNestedLoop() {
+        Random random = new Random(42);
+        for (int round = 0; round < 50; round++) {
+            int numRelease = 1 + random.nextInt(8);
+            long[] releaseTimes = new long[numRelease];
+            long time = 0;
+            for (int k = 0; k < numRelease; k++) {
+                // date uguali consecutive sono ammesse
+                time += random.nextInt(3) * 10L;
+                releaseTimes[k] = time;
+            }
+            long[] commitTimes = new long[random.nextInt(200)];
+            for (int i = 0; i < commitTimes.length; i++) {
+                // date sempre multiple di 10 per avere spesso commit nello stesso istante di una release
+                commitTimes[i] = random.nextInt((int) (time / 10) + 3) * 10L;
+            }
+            assertBucketsMatchNestedLoop(commits(commitTimes), releases(releaseTimes));
+        }
+    }
+
+    private static void assertBucketsMatchNestedLoop(List<CommitDescriptor> commits, List<Release> releases) {
+        List<List<CommitDescriptor>> expected = nestedLoop(commits, releases);
+        for (boolean parallel : new boolean[]{false, true}) {
+            ReleaseCommitBuckets buckets = bucketsOf(commits, releases, parallel);
+            for (int k = 0; k < releases.size(); k++) {
+                assertEquals(expected.get(k), buckets.commitsOf(k), "release " + k + ", parallel " + parallel);
+            }
+        }
+    }
+
+    // l'assegnazione originale: ogni commit confrontato con ogni release
+    private static List<List<CommitDescriptor>> nestedLoop(List<CommitDescriptor> commits, List<Release> releases) {
+        int numRelease = releases.size();
+        List<List<CommitDescriptor>> buckets = new ArrayList<>();
+        for (int k = 0; k < numRelease; k++) {
+            buckets.add(new ArrayList<>());
+        }
+        for (CommitDescriptor commit : commits) {
+            Date commitDate = new Date(commit.getCommitTime());
+            for (int k = 0; k < numRelease; k++) {
+                Date releaseDate = releases.get(k).getDate();
+                if (k == 0 && commitDate.before(releaseDate)) {
+                    buckets.get(k).add(commit);
+                    break;
+                }
+                if ((k == numRelease - 1 && commitDate.before(releaseDate)) ||
+                        (commitDate.before(releaseDate) && commitDate.after(releases.get(k - 1).getDate()))) {
+                    buckets.get(k).add(commit);
+                }
+            }
+        }
+        return buckets;
+    }
+
+    private static ReleaseCommitBuckets bucketsOf(List<CommitDescriptor> commits, List<Release> releases, boolean parallel) {
+        return ReleaseCommitBuckets.build(commits, releases, parallel);
+    }
+
+    private static List<Release> releases(long... seconds) {
+        List<Release> releases = new ArrayList<>();
+        for (int k = 0; k < seconds.length; k++) {
+            releases.add(new Release(k + 1, "1." + k, new Date(seconds[k] * 1000)));
+        }
+        return releases;
+    }
+
+    private static List<CommitDescriptor> commits(long... seconds) {
+        CommitTable table = new CommitTable();
+        for (int i = 0; i < seconds.length; i++) {
+            table.add(commit(seconds[i], "commit " + i));
+        }
+        return table.getCommits();
+    }
+
+    private static RevCommit commit(long seconds, String message) {
+        String raw = "tree " + ObjectId.zeroId().name() + "\n"
+                + "author Author <author@example.com> " + seconds + " +0000\n"
+                + "committer Author <author@example.com> " + seconds + " +0000\n"
+                + "\n" + message + "\n";
+        return RevCommit.parse(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,91 @@
+package project.controllers;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.jupiter.api.Test;
+import project.models.CommitDescriptor;
+import project.models.CommitTable;
+import project.models.Ticket;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TicketKeyExtractorTest {
+    private final TicketKeyExtractor extractor = new TicketKeyExtractor(List.of("OPENJPA", "BOOKKEEPER"));
+
+    @Test
+    void findsKeysFollowedBySeparator() {
+        assertEquals(Set.of("OPENJPA-123"), extractor.extract("OPENJPA-123: fix the query cache"));
+        assertEquals(Set.of("OPENJPA-123"), extractor.extract("[OPENJPA-123] fix the query cache"));
+        assertEquals(Set.of("OPENJPA-123"), extractor.extract("OPENJPA-123 fix the query cache"));
+    }
+
+    @Test
+    void ignoresKeysWithoutSeparator() {
+        assertTrue(extractor.extract("fix OPENJPA-123").isEmpty());
+        assertTrue(extractor.extract("OPENJPA-123.").isEmpty());
+        assertTrue(extractor.extract("see OPENJPA-").isEmpty());
+    }
+
+    @Test
+    void keyIsNotAPrefixOfALongerNumber() {
+        // OPENJPA-12 non deve comparire in un messaggio che cita solo OPENJPA-123
+        assertEquals(Set.of("OPENJPA-123"), extractor.extract("OPENJPA-123: fix"));
+    }
+
+    @Test
+    void ignoresOtherProjects() {
+        assertTrue(extractor.extract("ZOOKEEPER-1: fix").isEmpty());
+    }
+
+    @Test
+    void findsEveryKeyOfAMessageInOrder() {
+        assertEquals(List.of("BOOKKEEPER-7", "OPENJPA-1"),
+                new ArrayList<>(extractor.extract("BOOKKEEPER-7 and OPENJPA-1: fix, again BOOKKEEPER-7 ")));
+    }
+
+    @Test
+    void parallelExtractionKeepsTheOrderOfTheMessages() {
+        List<String> messages = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            messages.add("OPENJPA-" + i + ": commit " + i);
+        }
+        List<Set<String>> sequential = extractor.extractAll(messages, false);
+        assertEquals(sequential, extractor.extractAll(messages, true));
+        for (int i = 0; i < messages.size(); i++) {
+            assertEquals(Set.of("OPENJPA-" + i), sequential.get(i));
+        }
+    }
+
+    @Test
+    void associatesTheQuotingCommitsInLogOrder() {
+        CommitTable commits = new CommitTable();
+        List<String> messages = List.of("OPENJPA-1: first", "unrelated", "[OPENJPA-1] second", "OPENJPA-2 other");
+        for (int i = 0; i < messages.size(); i++) {
+            commits.add(commit(100L + i, messages.get(i)));
+        }
+        commits.addTicketKeys(extractor.extractAll(messages, true));
+
+        Ticket first = new Ticket("OPENJPA-1", null, null, null);
+        Ticket second = new Ticket("OPENJPA-2", null, null, null);
+        Ticket none = new Ticket("OPENJPA-3", null, null, null);
+        TicketKeyExtractor.associate(commits, List.of(first, second, none));
+
+        assertEquals(List.<CommitDescriptor>of(commits.get(0), commits.get(2)), first.getAssociatedCommits());
+        assertEquals(List.<CommitDescriptor>of(commits.get(3)), second.getAssociatedCommits());
+        assertTrue(none.getAssociatedCommits().isEmpty());
+    }
+
+    private static RevCommit commit(long seconds, String message) {
+        String raw = "tree " + ObjectId.zeroId().name() + "\n"
+                + "author Author <author@example.com> " + seconds + " +0000\n"
+                + "committer Author <author@example.com> " + seconds + " +0000\n"
+                + "\n" + message + "\n";
+        return RevCommit.parse(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}